@@ -0,0 +1,34 @@
+package com.shinho.support.cache.redis.annotation;
+
+import org.springframework.core.annotation.AliasFor;
+
+import java.lang.annotation.*;
+
+/**
+ * @author 傅为地
+ * 集合参数方法按元素缓存注解
+ * 如List<Item> findByIds(List<Long> ids)，按每个id单独缓存，
+ * 调用时批量读取缓存，只把未命中的id传给原方法，结果回写缓存后按传入顺序组装返回
+ * 方法返回值支持List/Set/Collection(需配置resultKey)和Map(key为元素id)
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface BatchCacheable {
+
+    /** 缓存名称，对应cache.redis.items中的name*/
+    @AliasFor("cacheName")
+    String value() default "";
+
+    @AliasFor("value")
+    String cacheName() default "";
+
+    /** 集合参数位置，默认取第一个集合类型参数*/
+    int index() default -1;
+
+    /** 单个元素缓存key，支持spring El表达式，#element表示集合中的元素，默认元素本身*/
+    String key() default "";
+
+    /** 返回结果元素对应的集合元素，支持spring El表达式，以结果元素为根对象，如id或#result.getId()，返回Map时不需要配置*/
+    String resultKey() default "";
+}
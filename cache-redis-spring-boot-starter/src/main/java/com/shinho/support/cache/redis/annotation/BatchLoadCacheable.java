@@ -0,0 +1,42 @@
+package com.shinho.support.cache.redis.annotation;
+
+import org.springframework.core.annotation.AliasFor;
+
+import java.lang.annotation.*;
+
+/**
+ * @author 傅为地
+ * 单个key方法自动合并批量加载注解
+ * 如Item findById(Long id)配置loader="findByIds"，并发调用在时间窗口内合并为一批，
+ * 缓存批量读取一次，未命中的id一次调用同一个bean的findByIds，结果回写缓存后分发给各调用方，调用方代码不变
+ * 批量方法参数为List/Set/Collection，返回值支持Map(key为元素id)和集合(需配置resultKey)
+ * 方法只能有一个参数(元素)，多个参数时不合并，直接执行方法；批量方法通过bean的代理调用，事务等切面正常生效
+ * 同一方法不需要再配置@Cacheable
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface BatchLoadCacheable {
+
+    /** 缓存名称，对应cache.redis.items中的name*/
+    @AliasFor("cacheName")
+    String value() default "";
+
+    @AliasFor("value")
+    String cacheName() default "";
+
+    /** 同一个bean中的批量加载方法名称*/
+    String loader();
+
+    /** 元素缓存key，支持spring El表达式，#element表示元素参数，默认元素本身*/
+    String key() default "";
+
+    /** 批量方法返回结果元素对应的元素，支持spring El表达式，以结果元素为根对象，如id或#result.getId()，返回Map时不需要配置*/
+    String resultKey() default "";
+
+    /** 合并等待时间(毫秒)*/
+    long window() default 2;
+
+    /** 每批最多合并数量，达到时立即执行*/
+    int maxBatch() default 100;
+}
@@ -0,0 +1,29 @@
+package com.shinho.support.cache.redis.annotation;
+
+import org.springframework.core.annotation.AliasFor;
+
+import java.lang.annotation.*;
+
+/**
+ * @author 傅为地
+ * 结构化缓存删除注解，方法正常返回后执行
+ * 配置field时删除Map的字段(结果为集合时删除多个)，否则删除整个缓存
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface StructuredCacheEvict {
+
+    /** 缓存名称，对应cache.redis.items中的name*/
+    @AliasFor("cacheName")
+    String value() default "";
+
+    @AliasFor("value")
+    String cacheName() default "";
+
+    /** 缓存key，支持spring El表达式，#参数名或#p0表示方法参数，#result表示返回值*/
+    String key();
+
+    /** Map字段，支持spring El表达式，不配置时删除整个缓存*/
+    String field() default "";
+}
@@ -0,0 +1,32 @@
+package com.shinho.support.cache.redis.annotation;
+
+import org.springframework.core.annotation.AliasFor;
+
+import java.lang.annotation.*;
+
+/**
+ * @author 傅为地
+ * 结构化缓存元素写入注解，方法正常返回后执行
+ * 配置field时写入Map的一个字段，否则在List末尾追加一个元素；缓存未加载时忽略，下次读取时整体加载
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface StructuredCachePut {
+
+    /** 缓存名称，对应cache.redis.items中的name*/
+    @AliasFor("cacheName")
+    String value() default "";
+
+    @AliasFor("value")
+    String cacheName() default "";
+
+    /** 缓存key，支持spring El表达式，#参数名或#p0表示方法参数，#result表示返回值*/
+    String key();
+
+    /** Map字段，支持spring El表达式，不配置时追加到List*/
+    String field() default "";
+
+    /** 写入的元素，支持spring El表达式，默认返回值*/
+    String element() default "#result";
+}
@@ -0,0 +1,28 @@
+package com.shinho.support.cache.redis.annotation;
+
+import org.springframework.core.annotation.AliasFor;
+
+import java.lang.annotation.*;
+
+/**
+ * @author 傅为地
+ * 结构化缓存读取注解
+ * 方法返回Map时缓存存储为redis hash，返回List/Set等集合时存储为redis list；命中时直接返回，未命中时执行方法后整体写入
+ * 配合@StructuredCachePut/@StructuredCacheEvict只修改其中的元素，不需要重新序列化整个集合
+ * 命中时Map的key按方法返回值声明的key类型转换(如Map&lt;Long,Item&gt;)，不保证原有顺序
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface StructuredCacheable {
+
+    /** 缓存名称，对应cache.redis.items中的name*/
+    @AliasFor("cacheName")
+    String value() default "";
+
+    @AliasFor("value")
+    String cacheName() default "";
+
+    /** 缓存key，支持spring El表达式，#参数名或#p0表示方法参数*/
+    String key();
+}
@@ -0,0 +1,198 @@
+package com.shinho.support.cache.redis.aspect;
+
+import com.shinho.support.cache.redis.annotation.BatchCacheable;
+import com.shinho.support.cache.redis.repository.BatchCache;
+import com.shinho.support.cache.redis.repository.CacheRedisManager;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 集合参数方法按元素缓存切面处理
+ *
+ * @author 傅为地
+ */
+@Aspect
+@Slf4j
+public class BatchCacheableAspect {
+
+    @Autowired
+    private CacheRedisManager cacheRedisManager;
+
+    private ExpressionParser parser = new SpelExpressionParser();
+
+    //已解析的spring El表达式
+    private final Map<String, Expression> expressions = new ConcurrentHashMap<String, Expression>();
+
+    @Pointcut("@annotation(com.shinho.support.cache.redis.annotation.BatchCacheable)")
+    public void initBatchCacheablePointcut() {
+    }
+
+    /**
+     * 切面处理集合参数按元素缓存
+     *
+     * @param point
+     * @throws Throwable
+     */
+    @Around("initBatchCacheablePointcut()")
+    public Object doBatchCacheableAround(ProceedingJoinPoint point) throws Throwable {
+        Method method = ((MethodSignature) point.getSignature()).getMethod();
+        //注解别名时，需要用此种方法获取
+        BatchCacheable batchCacheable = AnnotationUtils.getAnnotation(method, BatchCacheable.class);
+        if (ObjectUtils.isEmpty(batchCacheable)) {
+            return point.proceed();
+        }
+        BatchCache cache = cacheRedisManager.getBatchCache(batchCacheable.value());
+        Object[] args = point.getArgs();
+        int index = resolveIndex(batchCacheable, args);
+        Class<?> returnType = method.getReturnType();
+        boolean mapResult = Map.class.isAssignableFrom(returnType);
+        if (cache == null || index < 0 || args[index] == null || !CacheResultTypes.isSupported(returnType)
+                || (!mapResult && StringUtils.isEmpty(batchCacheable.resultKey()))) {
+            log.debug("redis batch cache skipped method:{},cacheName:{}", method, batchCacheable.value());
+            return point.proceed();
+        }
+        Collection<?> elements = (Collection<?>) args[index];
+        if (elements.isEmpty()) {
+            return point.proceed();
+        }
+        //元素与缓存key,保持传入顺序并去重
+        Map<Object, String> elementKeys = new LinkedHashMap<Object, String>();
+        for (Object element : elements) {
+            if (element != null && !elementKeys.containsKey(element)) {
+                elementKeys.put(element, elementKey(batchCacheable.key(), element));
+            }
+        }
+        Map<Object, Object> values = cache.getAll(elementKeys.values());
+        List<Object> missing = new ArrayList<Object>();
+        for (Map.Entry<Object, String> entry : elementKeys.entrySet()) {
+            if (!values.containsKey(entry.getValue())) {
+                missing.add(entry.getKey());
+            }
+        }
+        if (!missing.isEmpty()) {
+            Object[] missArgs = args.clone();
+            missArgs[index] = copyOf(elements, missing);
+            Object result = point.proceed(missArgs);
+            Map<Object, Object> loaded = index(batchCacheable, result);
+            //未返回的元素写入空值,开启空值缓存时生效
+            Map<Object, Object> writes = new LinkedHashMap<Object, Object>(loaded);
+            for (Object element : missing) {
+                String key = elementKeys.get(element);
+                if (!writes.containsKey(key)) {
+                    writes.put(key, null);
+                }
+            }
+            cache.putAll(writes);
+            values.putAll(loaded);
+            log.debug("redis batch cache method:{},hit:{},miss:{}", method.getName(), elementKeys.size() - missing.size(), missing.size());
+        }
+        return assemble(returnType, elements, elementKeys, values);
+    }
+
+    /*定位集合参数*/
+    private int resolveIndex(BatchCacheable batchCacheable, Object[] args) {
+        if (batchCacheable.index() >= 0) {
+            return batchCacheable.index() < args.length && args[batchCacheable.index()] instanceof Collection ? batchCacheable.index() : -1;
+        }
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof Collection) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /*元素缓存key*/
+    private String elementKey(String key, Object element) {
+        if (StringUtils.isEmpty(key)) {
+            return element.toString();
+        }
+        EvaluationContext context = new StandardEvaluationContext(element);
+        context.setVariable("element", element);
+        return String.valueOf(expression(key).getValue(context));
+    }
+
+    /*按原集合类型创建未命中元素集合*/
+    private Collection<Object> copyOf(Collection<?> elements, List<Object> missing) {
+        if (elements instanceof SortedSet) {
+            return new TreeSet<Object>(missing);
+        }
+        if (elements instanceof Set) {
+            return new LinkedHashSet<Object>(missing);
+        }
+        return missing;
+    }
+
+    /*原方法返回结果按元素缓存key索引*/
+    private Map<Object, Object> index(BatchCacheable batchCacheable, Object result) {
+        Map<Object, Object> loaded = new LinkedHashMap<Object, Object>();
+        if (result instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) result).entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null) {
+                    loaded.put(elementKey(batchCacheable.key(), entry.getKey()), entry.getValue());
+                }
+            }
+        } else if (result instanceof Collection) {
+            Expression expression = expression(batchCacheable.resultKey());
+            for (Object item : (Collection<?>) result) {
+                if (item != null) {
+                    EvaluationContext context = new StandardEvaluationContext(item);
+                    context.setVariable("result", item);
+                    Object element = expression.getValue(context);
+                    if (element != null) {
+                        loaded.put(elementKey(batchCacheable.key(), element), item);
+                    }
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /*按传入元素顺序组装返回结果,结果类型与方法声明的返回类型一致*/
+    private Object assemble(Class<?> returnType, Collection<?> elements, Map<Object, String> elementKeys, Map<Object, Object> values) {
+        if (Map.class.isAssignableFrom(returnType)) {
+            Map<Object, Object> result = CacheResultTypes.newMap(returnType, elementKeys.size());
+            for (Map.Entry<Object, String> entry : elementKeys.entrySet()) {
+                Object value = values.get(entry.getValue());
+                if (value != null) {
+                    result.put(entry.getKey(), value);
+                }
+            }
+            return result;
+        }
+        Collection<Object> result = CacheResultTypes.newCollection(returnType, elements.size());
+        for (Object element : elements) {
+            Object value = element == null ? null : values.get(elementKeys.get(element));
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    private Expression expression(String expression) {
+        Expression parsed = expressions.get(expression);
+        if (parsed == null) {
+            parsed = parser.parseExpression(expression);
+            expressions.put(expression, parsed);
+        }
+        return parsed;
+    }
+}
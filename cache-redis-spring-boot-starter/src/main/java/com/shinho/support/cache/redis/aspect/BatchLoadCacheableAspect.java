@@ -0,0 +1,169 @@
+package com.shinho.support.cache.redis.aspect;
+
+import com.shinho.support.cache.redis.annotation.BatchLoadCacheable;
+import com.shinho.support.cache.redis.repository.BatchCache;
+import com.shinho.support.cache.redis.repository.CacheDataLoader;
+import com.shinho.support.cache.redis.repository.CacheRedisManager;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 单个key方法自动合并批量加载切面处理
+ *
+ * @author 傅为地
+ */
+@Aspect
+@Slf4j
+public class BatchLoadCacheableAspect {
+
+    @Autowired
+    private CacheRedisManager cacheRedisManager;
+
+    private ExpressionParser parser = new SpelExpressionParser();
+
+    //已解析的spring El表达式
+    private final Map<String, Expression> expressions = new ConcurrentHashMap<String, Expression>();
+
+    //方法和目标对象对应的合并加载
+    private final ConcurrentMap<List<Object>, CacheDataLoader> loaders = new ConcurrentHashMap<List<Object>, CacheDataLoader>();
+
+    @Pointcut("@annotation(com.shinho.support.cache.redis.annotation.BatchLoadCacheable)")
+    public void initBatchLoadCacheablePointcut() {
+    }
+
+    /**
+     * 切面处理单个key合并批量加载
+     *
+     * @param point
+     * @throws Throwable
+     */
+    @Around("initBatchLoadCacheablePointcut()")
+    public Object doBatchLoadCacheableAround(ProceedingJoinPoint point) throws Throwable {
+        Method method = ((MethodSignature) point.getSignature()).getMethod();
+        //注解别名时，需要用此种方法获取
+        BatchLoadCacheable batchLoad = AnnotationUtils.getAnnotation(method, BatchLoadCacheable.class);
+        if (ObjectUtils.isEmpty(batchLoad)) {
+            return point.proceed();
+        }
+        Object[] args = point.getArgs();
+        //只合并一个参数的方法,其他参数无法传给批量方法
+        CacheDataLoader loader = args.length == 1 && args[0] != null
+                ? getLoader(method, point.getThis(), batchLoad) : null;
+        if (loader == null) {
+            log.debug("redis batch load skipped method:{},cacheName:{}", method, batchLoad.value());
+            return point.proceed();
+        }
+        return loader.load(args[0], elementKey(batchLoad.key(), args[0]));
+    }
+
+    /*方法和代理对象对应的合并加载,批量方法通过代理调用,批量方法或缓存不存在时返回null*/
+    private CacheDataLoader getLoader(Method method, final Object proxy, final BatchLoadCacheable batchLoad) {
+        List<Object> id = Arrays.asList(method, proxy);
+        CacheDataLoader loader = loaders.get(id);
+        if (loader != null) {
+            return loader;
+        }
+        BatchCache cache = cacheRedisManager.getBatchCache(batchLoad.value());
+        //jdk动态代理时只能找到接口中声明的批量方法
+        final Method batchMethod = findBatchMethod(proxy.getClass(), batchLoad.loader());
+        if (cache == null || batchMethod == null
+                || (!Map.class.isAssignableFrom(batchMethod.getReturnType()) && StringUtils.isEmpty(batchLoad.resultKey()))) {
+            log.warn("redis batch load loader not found or without resultKey, method:{},loader:{}", method, batchLoad.loader());
+            return null;
+        }
+        ReflectionUtils.makeAccessible(batchMethod);
+        loader = new CacheDataLoader(cache, new CacheDataLoader.BatchLoader() {
+            @Override
+            public Map<?, ?> load(List<Object> elements) throws Exception {
+                Object arg = batchMethod.getParameterTypes()[0].isAssignableFrom(ArrayList.class) ? elements : new LinkedHashSet<Object>(elements);
+                try {
+                    return index(batchLoad, batchMethod.invoke(proxy, arg));
+                } catch (InvocationTargetException e) {
+                    if (e.getTargetException() instanceof Exception) {
+                        throw (Exception) e.getTargetException();
+                    }
+                    throw e;
+                }
+            }
+        }, batchLoad.maxBatch(), batchLoad.window());
+        CacheDataLoader existing = loaders.putIfAbsent(id, loader);
+        return existing != null ? existing : loader;
+    }
+
+    /*查找一个集合参数的批量方法,参数类型需要能够接收List或者Set,private方法不经过代理,不支持*/
+    private Method findBatchMethod(Class<?> proxyClass, String name) {
+        for (Method candidate : ReflectionUtils.getAllDeclaredMethods(proxyClass)) {
+            if (candidate.getName().equals(name) && !Modifier.isPrivate(candidate.getModifiers()) && candidate.getParameterTypes().length == 1
+                    && (candidate.getParameterTypes()[0].isAssignableFrom(ArrayList.class)
+                    || candidate.getParameterTypes()[0].isAssignableFrom(LinkedHashSet.class))) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /*元素缓存key*/
+    private String elementKey(String key, Object element) {
+        if (StringUtils.isEmpty(key)) {
+            return element.toString();
+        }
+        EvaluationContext context = new StandardEvaluationContext(element);
+        context.setVariable("element", element);
+        return String.valueOf(expression(key).getValue(context));
+    }
+
+    /*批量方法返回结果按元素缓存key索引*/
+    private Map<Object, Object> index(BatchLoadCacheable batchLoad, Object result) {
+        Map<Object, Object> loaded = new HashMap<Object, Object>();
+        if (result instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) result).entrySet()) {
+                if (entry.getKey() != null) {
+                    loaded.put(elementKey(batchLoad.key(), entry.getKey()), entry.getValue());
+                }
+            }
+        } else if (result instanceof Collection) {
+            Expression expression = expression(batchLoad.resultKey());
+            for (Object item : (Collection<?>) result) {
+                if (item != null) {
+                    EvaluationContext context = new StandardEvaluationContext(item);
+                    context.setVariable("result", item);
+                    Object element = expression.getValue(context);
+                    if (element != null) {
+                        loaded.put(elementKey(batchLoad.key(), element), item);
+                    }
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private Expression expression(String expression) {
+        Expression parsed = expressions.get(expression);
+        if (parsed == null) {
+            parsed = parser.parseExpression(expression);
+            expressions.put(expression, parsed);
+        }
+        return parsed;
+    }
+}
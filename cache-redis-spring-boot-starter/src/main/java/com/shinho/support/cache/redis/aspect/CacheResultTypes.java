@@ -0,0 +1,106 @@
+package com.shinho.support.cache.redis.aspect;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @author 傅为地
+ * 按方法声明的返回类型创建缓存组装结果
+ * 接口和父类型使用默认实现(ArrayList、LinkedHashSet、TreeSet、LinkedHashMap、TreeMap)，
+ * 具体类型(如LinkedList、ArrayDeque、ConcurrentHashMap)通过无参构造创建，无法创建时不使用缓存，直接执行方法
+ */
+final class CacheResultTypes {
+
+    private CacheResultTypes() {
+    }
+
+    /**
+     * 是否可以创建返回类型的结果
+     * @param returnType 方法返回类型
+     * @return 集合或Map的接口、父类型或有无参构造的具体类型时返回true
+     */
+    static boolean isSupported(Class<?> returnType) {
+        if (Map.class.isAssignableFrom(returnType)) {
+            return returnType.isAssignableFrom(LinkedHashMap.class) || returnType.isAssignableFrom(TreeMap.class) || isInstantiable(returnType);
+        }
+        if (Collection.class.isAssignableFrom(returnType)) {
+            return returnType.isAssignableFrom(ArrayList.class) || returnType.isAssignableFrom(LinkedHashSet.class)
+                    || returnType.isAssignableFrom(TreeSet.class) || isInstantiable(returnType);
+        }
+        return false;
+    }
+
+    /**
+     * 创建集合结果，List/Collection为ArrayList，Set为LinkedHashSet，SortedSet为TreeSet
+     * @param returnType 方法返回类型
+     * @param size 预计元素数量
+     * @return collection
+     */
+    @SuppressWarnings("unchecked")
+    static Collection<Object> newCollection(Class<?> returnType, int size) {
+        if (returnType.isAssignableFrom(ArrayList.class)) {
+            return new ArrayList<Object>(size);
+        }
+        if (returnType.isAssignableFrom(LinkedHashSet.class)) {
+            return new LinkedHashSet<Object>(size * 4 / 3 + 1);
+        }
+        if (returnType.isAssignableFrom(TreeSet.class)) {
+            return new TreeSet<Object>();
+        }
+        return (Collection<Object>) BeanUtils.instantiateClass(returnType);
+    }
+
+    /**
+     * 创建Map结果，Map为LinkedHashMap，SortedMap为TreeMap
+     * @param returnType 方法返回类型
+     * @param size 预计元素数量
+     * @return map
+     */
+    @SuppressWarnings("unchecked")
+    static Map<Object, Object> newMap(Class<?> returnType, int size) {
+        if (returnType.isAssignableFrom(LinkedHashMap.class)) {
+            return new LinkedHashMap<Object, Object>(size * 4 / 3 + 1);
+        }
+        if (returnType.isAssignableFrom(TreeMap.class)) {
+            return new TreeMap<Object, Object>();
+        }
+        return (Map<Object, Object>) BeanUtils.instantiateClass(returnType);
+    }
+
+    /**
+     * 结果是否不支持null值，ConcurrentHashMap、Hashtable等
+     * @param map 创建的结果
+     * @return boolean
+     */
+    static boolean rejectsNullValue(Map<?, ?> map) {
+        return map instanceof ConcurrentMap || map instanceof Hashtable;
+    }
+
+    /**
+     * 结果是否不支持null key，不支持null值的类型以及TreeMap等有序Map
+     * @param map 创建的结果
+     * @return boolean
+     */
+    static boolean rejectsNullKey(Map<?, ?> map) {
+        return rejectsNullValue(map) || map instanceof SortedMap;
+    }
+
+    /**
+     * 结果是否不支持null元素，TreeSet等有序集合以及LinkedList之外的队列(如ArrayDeque、PriorityQueue)
+     * @param collection 创建的结果
+     * @return boolean
+     */
+    static boolean rejectsNull(Collection<?> collection) {
+        return collection instanceof SortedSet || (collection instanceof Queue && !(collection instanceof LinkedList));
+    }
+
+    /*非抽象且有public无参构造的类型*/
+    private static boolean isInstantiable(Class<?> type) {
+        return !type.isInterface() && !Modifier.isAbstract(type.getModifiers()) && Modifier.isPublic(type.getModifiers())
+                && ClassUtils.hasConstructor(type) && Modifier.isPublic(ClassUtils.getConstructorIfAvailable(type).getModifiers());
+    }
+}
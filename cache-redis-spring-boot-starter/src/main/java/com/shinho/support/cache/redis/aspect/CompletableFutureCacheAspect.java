@@ -0,0 +1,45 @@
+package com.shinho.support.cache.redis.aspect;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 返回CompletableFuture的@Cacheable方法处理切面
+ * 缓存中保存的是future完成后的结果值(由CacheRedisRepository在future正常完成时写入)，
+ * 命中缓存时spring缓存拦截器返回的是结果值，此切面在缓存拦截器外层将其包装为已完成的future
+ *
+ * @author 傅为地
+ */
+@Aspect
+@Slf4j
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CompletableFutureCacheAspect {
+
+    @Pointcut("(@annotation(org.springframework.cache.annotation.Cacheable) || @within(org.springframework.cache.annotation.Cacheable))"
+            + " && execution(java.util.concurrent.CompletableFuture *(..))")
+    public void initCompletableFutureCacheablePointcut() {
+    }
+
+    /**
+     * 缓存命中的结果值包装为已完成的future
+     *
+     * @param point
+     * @throws Throwable
+     */
+    @Around("initCompletableFutureCacheablePointcut()")
+    public Object doCompletableFutureCacheableAround(ProceedingJoinPoint point) throws Throwable {
+        Object result = point.proceed();
+        if (result instanceof CompletableFuture) {
+            return result;
+        }
+        log.debug("redis cache hit completed value method:{}", point.getSignature());
+        return CompletableFuture.completedFuture(result);
+    }
+}
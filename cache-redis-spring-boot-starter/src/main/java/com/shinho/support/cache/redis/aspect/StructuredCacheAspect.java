@@ -0,0 +1,245 @@
+package com.shinho.support.cache.redis.aspect;
+
+import com.shinho.support.cache.redis.annotation.StructuredCacheEvict;
+import com.shinho.support.cache.redis.annotation.StructuredCachePut;
+import com.shinho.support.cache.redis.annotation.StructuredCacheable;
+import com.shinho.support.cache.redis.repository.CacheHashEntry;
+import com.shinho.support.cache.redis.repository.CacheListEntry;
+import com.shinho.support.cache.redis.repository.CacheRedisManager;
+import com.shinho.support.cache.redis.repository.StructuredCache;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 结构化缓存切面处理
+ * 方法返回Map时对应redis hash，返回集合时对应redis list，put/evict只修改其中的元素
+ *
+ * @author 傅为地
+ */
+@Aspect
+@Slf4j
+public class StructuredCacheAspect {
+
+    @Autowired
+    private CacheRedisManager cacheRedisManager;
+
+    private ExpressionParser parser = new SpelExpressionParser();
+
+    private ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    //命中时Map key按声明类型转换
+    private ConversionService conversionService = DefaultConversionService.getSharedInstance();
+
+    //已解析的spring El表达式
+    private final Map<String, Expression> expressions = new ConcurrentHashMap<String, Expression>();
+
+    @Pointcut("@annotation(com.shinho.support.cache.redis.annotation.StructuredCacheable)")
+    public void initStructuredCacheablePointcut() {
+    }
+
+    @Pointcut("@annotation(com.shinho.support.cache.redis.annotation.StructuredCachePut)")
+    public void initStructuredCachePutPointcut() {
+    }
+
+    @Pointcut("@annotation(com.shinho.support.cache.redis.annotation.StructuredCacheEvict)")
+    public void initStructuredCacheEvictPointcut() {
+    }
+
+    /**
+     * 切面处理结构化缓存读取
+     *
+     * @param point
+     * @throws Throwable
+     */
+    @Around("initStructuredCacheablePointcut()")
+    public Object doStructuredCacheableAround(ProceedingJoinPoint point) throws Throwable {
+        Method method = ((MethodSignature) point.getSignature()).getMethod();
+        //注解别名时，需要用此种方法获取
+        StructuredCacheable cacheable = AnnotationUtils.getAnnotation(method, StructuredCacheable.class);
+        if (ObjectUtils.isEmpty(cacheable)) {
+            return point.proceed();
+        }
+        StructuredCache cache = cacheRedisManager.getStructuredCache(cacheable.value());
+        Class<?> returnType = method.getReturnType();
+        boolean mapResult = Map.class.isAssignableFrom(returnType);
+        if (cache == null || !CacheResultTypes.isSupported(returnType)) {
+            log.debug("redis structured cache skipped method:{},cacheName:{}", method, cacheable.value());
+            return point.proceed();
+        }
+        EvaluationContext context = createContext(point, method, null);
+        Object key = expression(cacheable.key()).getValue(context);
+        if (key == null) {
+            return point.proceed();
+        }
+        if (mapResult) {
+            CacheHashEntry entry = cache.hashEntry(key);
+            Map<String, Object> cached = entry.getAll();
+            if (cached != null) {
+                Map<Object, Object> result = toMap(method, returnType, cached);
+                if (result != null) {
+                    return result;
+                }
+            }
+            Object result = point.proceed();
+            if (result != null) {
+                entry.load((Map<?, ?>) result);
+            }
+            return result;
+        }
+        CacheListEntry entry = cache.listEntry(key);
+        List<Object> cached = entry.getAll();
+        Collection<Object> collection = cached == null ? null : toCollection(method, returnType, cached);
+        if (collection != null) {
+            return collection;
+        }
+        Object result = point.proceed();
+        if (result != null) {
+            entry.load((Collection<?>) result);
+        }
+        return result;
+    }
+
+    /**
+     * 切面处理结构化缓存元素写入
+     *
+     * @param point
+     * @throws Throwable
+     */
+    @Around("initStructuredCachePutPointcut()")
+    public Object doStructuredCachePutAround(ProceedingJoinPoint point) throws Throwable {
+        Object result = point.proceed();
+        Method method = ((MethodSignature) point.getSignature()).getMethod();
+        StructuredCachePut put = AnnotationUtils.getAnnotation(method, StructuredCachePut.class);
+        StructuredCache cache = ObjectUtils.isEmpty(put) ? null : cacheRedisManager.getStructuredCache(put.value());
+        if (cache == null) {
+            return result;
+        }
+        EvaluationContext context = createContext(point, method, result);
+        Object key = expression(put.key()).getValue(context);
+        if (key == null) {
+            return result;
+        }
+        Object element = expression(put.element()).getValue(context);
+        if (StringUtils.isEmpty(put.field())) {
+            cache.listEntry(key).append(element);
+        } else {
+            Object field = expression(put.field()).getValue(context);
+            if (field != null) {
+                cache.hashEntry(key).put(field, element);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 切面处理结构化缓存删除
+     *
+     * @param point
+     * @throws Throwable
+     */
+    @Around("initStructuredCacheEvictPointcut()")
+    public Object doStructuredCacheEvictAround(ProceedingJoinPoint point) throws Throwable {
+        Object result = point.proceed();
+        Method method = ((MethodSignature) point.getSignature()).getMethod();
+        StructuredCacheEvict evict = AnnotationUtils.getAnnotation(method, StructuredCacheEvict.class);
+        StructuredCache cache = ObjectUtils.isEmpty(evict) ? null : cacheRedisManager.getStructuredCache(evict.value());
+        if (cache == null) {
+            return result;
+        }
+        EvaluationContext context = createContext(point, method, result);
+        Object key = expression(evict.key()).getValue(context);
+        if (key == null) {
+            return result;
+        }
+        if (StringUtils.isEmpty(evict.field())) {
+            cache.evictStructured(key);
+            return result;
+        }
+        Object field = expression(evict.field()).getValue(context);
+        if (field instanceof Collection) {
+            cache.hashEntry(key).remove(((Collection<?>) field).toArray());
+        } else if (field != null) {
+            cache.hashEntry(key).remove(field);
+        }
+        return result;
+    }
+
+    /*方法参数表达式上下文,#参数名、#p0、#a0表示参数,#result表示返回值*/
+    private EvaluationContext createContext(ProceedingJoinPoint point, Method method, Object result) {
+        Method targetMethod = point.getTarget() == null ? method : AopUtils.getMostSpecificMethod(method, AopUtils.getTargetClass(point.getTarget()));
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(null, targetMethod, point.getArgs(), parameterNameDiscoverer);
+        context.setVariable("result", result);
+        return context;
+    }
+
+    /*hash字段转换为方法声明的Map key类型,无法转换或返回类型不支持null key/值时返回null,按未命中执行方法*/
+    private Map<Object, Object> toMap(Method method, Class<?> returnType, Map<String, Object> cached) {
+        TypeDescriptor keyType = new TypeDescriptor(new MethodParameter(method, -1)).getMapKeyTypeDescriptor();
+        Map<Object, Object> result = CacheResultTypes.newMap(returnType, cached.size());
+        boolean convert = keyType != null && !keyType.getType().isAssignableFrom(String.class);
+        boolean rejectsNullKey = CacheResultTypes.rejectsNullKey(result);
+        boolean rejectsNullValue = CacheResultTypes.rejectsNullValue(result);
+        try {
+            for (Map.Entry<String, Object> entry : cached.entrySet()) {
+                Object field = convert ? conversionService.convert(entry.getKey(), keyType.getType()) : entry.getKey();
+                if ((field == null && rejectsNullKey) || (entry.getValue() == null && rejectsNullValue)) {
+                    log.debug("redis structured cache null entry not supported method:{},returnType:{}", method, returnType);
+                    return null;
+                }
+                result.put(field, entry.getValue());
+            }
+        } catch (ConversionException e) {
+            log.warn("redis structured cache convert map error method:{},error:{}", method, e.getMessage());
+            return null;
+        }
+        return result;
+    }
+
+    /*按方法返回类型创建集合,返回类型不支持null元素(如ArrayDeque)时返回null,按未命中执行方法*/
+    private Collection<Object> toCollection(Method method, Class<?> returnType, List<Object> cached) {
+        if (returnType.isAssignableFrom(cached.getClass())) {
+            return cached;
+        }
+        Collection<Object> result = CacheResultTypes.newCollection(returnType, cached.size());
+        if (CacheResultTypes.rejectsNull(result) && cached.contains(null)) {
+            log.debug("redis structured cache null element not supported method:{},returnType:{}", method, returnType);
+            return null;
+        }
+        result.addAll(cached);
+        return result;
+    }
+
+    private Expression expression(String expression) {
+        Expression parsed = expressions.get(expression);
+        if (parsed == null) {
+            parsed = parser.parseExpression(expression);
+            expressions.put(expression, parsed);
+        }
+        return parsed;
+    }
+}
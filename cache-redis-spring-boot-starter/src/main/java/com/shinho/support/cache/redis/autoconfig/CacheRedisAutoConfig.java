@@ -3,13 +3,42 @@ package com.shinho.support.cache.redis.autoconfig;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.gson.Gson;
+import com.shinho.support.cache.redis.aspect.BatchCacheableAspect;
+import com.shinho.support.cache.redis.aspect.BatchLoadCacheableAspect;
+import com.shinho.support.cache.redis.aspect.CompletableFutureCacheAspect;
+import com.shinho.support.cache.redis.aspect.StructuredCacheAspect;
+import com.shinho.support.cache.redis.bloom.CacheBloomFilter;
+import com.shinho.support.cache.redis.breaker.CacheRedisCircuitBreaker;
+import com.shinho.support.cache.redis.generator.CacheKeyExtractor;
+import com.shinho.support.cache.redis.generator.CacheRedisKeyGenerator;
+import com.shinho.support.cache.redis.hotkey.CacheHotKeyDetector;
+import com.shinho.support.cache.redis.local.CacheRedisInvalidationListener;
+import com.shinho.support.cache.redis.local.HeapLocalCacheStore;
+import com.shinho.support.cache.redis.local.LocalCacheStoreType;
+import com.shinho.support.cache.redis.local.OffHeapLocalCacheStore;
+import com.shinho.support.cache.redis.pool.CacheRedisPool;
+import com.shinho.support.cache.redis.pool.CacheRedisPools;
+import com.shinho.support.cache.redis.pool.CacheRedisShards;
+import com.shinho.support.cache.redis.properties.CacheRedisExpiry;
+import com.shinho.support.cache.redis.replica.CacheReadFrom;
+import com.shinho.support.cache.redis.replica.CacheReadRouter;
 import com.shinho.support.cache.redis.properties.CacheRedisProperties;
 import com.shinho.support.cache.redis.properties.CacheRedisSingleItem;
+import com.shinho.support.cache.redis.repository.CacheClearMode;
+import com.shinho.support.cache.redis.repository.CacheExpiryPolicy;
+import com.shinho.support.cache.redis.repository.CacheRedisManager;
 import com.shinho.support.cache.redis.repository.CacheRedisRepository;
+import com.shinho.support.cache.redis.repository.CacheStorageLayout;
+import com.shinho.support.cache.redis.repository.CacheWriteBehindQueue;
+import com.shinho.support.cache.redis.serializer.*;
+import com.shinho.support.cache.redis.warmup.CacheWarmUpEngine;
+import com.shinho.support.cache.redis.warmup.CacheWarmUpSource;
+import com.shinho.support.cache.redis.warmup.SpelCacheWarmUpSource;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -26,19 +55,23 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
-import java.io.UnsupportedEncodingException;
-import java.lang.reflect.Method;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
 
 /**
  * @author 傅为地
@@ -53,44 +86,41 @@ import java.util.*;
 @ConditionalOnProperty(prefix="cache.redis",name = "enable", havingValue = "true")
 public class CacheRedisAutoConfig extends CachingConfigurerSupport {
 
+    //kryo序列化依赖类
+    private static final String KRYO_CLASS="com.esotericsoftware.kryo.Kryo";
+
+    //lz4压缩依赖类
+    private static final String LZ4_CLASS="net.jpountz.lz4.LZ4Factory";
+
     @Autowired
     private CacheRedisProperties cacheRedisProperties;
 
+    //自定义类型缓存key提取
+    @Autowired(required = false)
+    private List<CacheKeyExtractor<?>> cacheKeyExtractors;
+
+    //自定义缓存序列化方式
+    @Autowired(required = false)
+    private List<CacheValueSerializer> cacheValueSerializers;
+
+    private final JdkCacheValueSerializer jdkSerializer=new JdkCacheValueSerializer();
+
+    private final JacksonCacheValueSerializer jsonSerializer=new JacksonCacheValueSerializer();
+
+    private final DeflateCacheValueCompressor deflateCompressor=new DeflateCacheValueCompressor();
+
+    private Lz4CacheValueCompressor lz4Compressor;
+
     /**
      * 自定义SpringCache缓存key
+     * 类名+方法签名+参数流式计算murmur3 128位哈希，不生成中间字符串
      */
     @Bean("keyGenerator")
     @Primary
     @ConditionalOnMissingBean(KeyGenerator.class)
     @Override
     public KeyGenerator keyGenerator() {
-        return new KeyGenerator() {
-            @Override
-            public Object generate(Object target, Method method, Object... params) {
-                Map<String, Object> keyMap = new LinkedHashMap<String, Object>();//保证key有序
-                keyMap.put("target", target.getClass().toGenericString());//放入target的名字
-                keyMap.put("method", method.getName());//放入method的名字
-                //把所有参数放进去
-                if (!ObjectUtils.isEmpty(params)) {
-                    for (int i = 0; i <params.length ; i++) {
-                        keyMap.put("params-" + i, params[i]);
-                    }
-                }
-                byte[] argsHash = null;
-                String cacheKey = null;
-                try {
-                    argsHash = MessageDigest.getInstance("MD5").digest(new Gson().toJson(keyMap).getBytes("UTF-8"));
-                    cacheKey= DigestUtils.md5Hex(argsHash).toUpperCase();//使用MD5生成位移key
-                } catch (NoSuchAlgorithmException e) {
-                    e.printStackTrace();
-                    log.error("AutoCacheRedisConfig init springCache keyGenerator error:",e);
-                } catch (UnsupportedEncodingException e) {
-                    e.printStackTrace();
-                    log.error("AutoCacheRedisConfig init springCache keyGenerator error:",e);
-                }
-                return cacheKey;
-            }
-        };
+        return new CacheRedisKeyGenerator(cacheKeyExtractors);
     }
 
     /**
@@ -124,13 +154,20 @@ public class CacheRedisAutoConfig extends CachingConfigurerSupport {
     }
 
     /**
-     * 自定义缓存SimpleCacheManager
+     * 自定义缓存SimpleCacheManager，支持获取批量缓存
      */
     @Bean
     @Order(value =Ordered.HIGHEST_PRECEDENCE)
     @ConditionalOnBean({RedisTemplate.class,RedisConnectionFactory.class})
-    public SimpleCacheManager simpleCacheManager(RedisTemplate<Object, Object> redisTemplate,RedisConnectionFactory factory) {
-        SimpleCacheManager simple = new SimpleCacheManager();
+    public CacheRedisManager simpleCacheManager(CacheRedisPools cacheRedisPools,
+                                                 @Qualifier("cacheRedisExecutor") TaskExecutor cacheRedisExecutor,
+                                                 @Qualifier("cacheRedisRefreshExecutor") TaskExecutor cacheRedisRefreshExecutor,
+                                                 @Qualifier("cacheRedisAsyncExecutor") TaskExecutor cacheRedisAsyncExecutor,
+                                                 ObjectProvider<CacheRedisCircuitBreaker> breakerProvider,
+                                                 ObjectProvider<CacheReadRouter> readRouterProvider) {
+        CacheRedisManager simple = new CacheRedisManager();
+        CacheRedisCircuitBreaker breaker=breakerProvider.getIfAvailable();
+        CacheReadRouter readRouter=readRouterProvider.getIfAvailable();
         if(!CollectionUtils.isEmpty(cacheRedisProperties.getItems())){
             String keyPrefix=StringUtils.isEmpty(cacheRedisProperties.getPrefix())?"":cacheRedisProperties.getPrefix();
             long globalTimeOut=ObjectUtils.isEmpty(cacheRedisProperties.getTimeout())?60*60*24:cacheRedisProperties.getTimeout();
@@ -148,11 +185,89 @@ public class CacheRedisAutoConfig extends CachingConfigurerSupport {
                     //配置缓存
                     if(!StringUtils.isEmpty(item.getName())){
                         //配置默认超时时间
-                        if(ObjectUtils.isEmpty(item.getTimeout())){
-                            caches.add(new CacheRedisRepository(item.getName(),globalTimeOut,isEnable,allkeyPrefix,redisTemplate,factory));
-                        }else{
-                            caches.add(new CacheRedisRepository(item.getName(),item.getTimeout(),isEnable,allkeyPrefix,redisTemplate,factory));
+                        long timeout=ObjectUtils.isEmpty(item.getTimeout())?globalTimeOut:item.getTimeout();
+                        CacheValueCodec codec=createCodec(item);
+                        //配置连接池,分片时第一个连接池存放缓存代数、布隆过滤器并发送失效广播
+                        CacheRedisPool pool=cacheRedisPools.get(StringUtils.isEmpty(item.getPool())?CacheRedisPools.DEFAULT:item.getPool());
+                        CacheRedisShards shards=null;
+                        if(!ObjectUtils.isEmpty(item.getShard())&&!CollectionUtils.isEmpty(item.getShard().getPools())){
+                            shards=cacheRedisPools.shards(item.getShard().getPools(),item.getShard().getVirtualNodes());
+                            pool=shards.getPrimary();
+                        }
+                        CacheRedisRepository.CacheRedisRepositoryBuilder builder=CacheRedisRepository.builder()
+                                .name(item.getName()).timeout(timeout).enable(isEnable).keyPrefix(allkeyPrefix)
+                                .redisTemplate(pool.getTemplate()).connectionFactory(pool.getFactory()).shards(shards)
+                                .codec(codec)
+                                .clearMode(ObjectUtils.isEmpty(item.getClearMode())?CacheClearMode.KEYS:item.getClearMode())
+                                .layout(ObjectUtils.isEmpty(item.getLayout())?CacheStorageLayout.STRING:item.getLayout())
+                                .hashBuckets(item.getHashBuckets())
+                                .channel(cacheRedisProperties.getChannel())
+                                .executor(cacheRedisExecutor)
+                                .asyncExecutor(cacheRedisAsyncExecutor)
+                                .breaker(breaker)
+                                .nullTimeout(item.getNullTimeout())
+                                .expiryPolicy(createExpiryPolicy(item));
+                        //配置本地一级缓存,开启熔断时保留过期数据用于降级
+                        if(isLocalEnable(item)){
+                            CacheRedisSingleItem.Local local=item.getLocal();
+                            builder.localCache(LocalCacheStoreType.OFFHEAP==local.getStore()
+                                    ?new OffHeapLocalCacheStore(codec,local.getMaxBytes(),breaker!=null)
+                                    :new HeapLocalCacheStore(local.getSize(),breaker!=null))
+                                    .localTimeout(local.getTimeout());
+                        }
+                        //配置大小限制
+                        if(!ObjectUtils.isEmpty(item.getOversize())&&item.getOversize().getMaxSize()>0){
+                            builder.maxValueSize(item.getOversize().getMaxSize()).oversizeMode(item.getOversize().getMode())
+                                    .chunkSize(item.getOversize().getChunkSize());
+                        }
+                        //配置副本读取
+                        if(!ObjectUtils.isEmpty(item.getReadFrom())&&CacheReadFrom.MASTER!=item.getReadFrom()){
+                            if(readRouter==null){
+                                log.warn("redis cache item {} read-from {} ignored, cache.redis.replica not enabled",item.getName(),item.getReadFrom());
+                            }else if(shards!=null||!CacheRedisPools.DEFAULT.equals(pool.getName())){
+                                log.warn("redis cache item {} read-from {} ignored, replica only for default pool",item.getName(),item.getReadFrom());
+                            }else{
+                                builder.readRouter(readRouter).readFrom(item.getReadFrom());
+                            }
+                        }
+                        //配置写后缓存
+                        if(!ObjectUtils.isEmpty(item.getWriteBehind())&&item.getWriteBehind().isEnable()){
+                            CacheRedisSingleItem.WriteBehind writeBehind=item.getWriteBehind();
+                            builder.writeBehind(new CacheWriteBehindQueue(item.getName(),writeBehind.getCapacity(),writeBehind.getBatch(),
+                                    writeBehind.getInterval(),writeBehind.getShutdownTimeout()));
+                        }
+                        //配置跨节点加载租约
+                        if(!ObjectUtils.isEmpty(item.getLease())&&item.getLease().isEnable()){
+                            builder.leaseTimeout(item.getLease().getTimeout()).leaseWait(item.getLease().getWait());
                         }
+                        //配置提前刷新
+                        if(!ObjectUtils.isEmpty(item.getRefresh())&&item.getRefresh().isEnable()&&timeout>0){
+                            builder.refreshAhead(true).refreshRatio(item.getRefresh().getRatio())
+                                    .refreshBeta(item.getRefresh().getBeta()).refreshExecutor(cacheRedisRefreshExecutor);
+                        }
+                        //配置过期保留
+                        if(!ObjectUtils.isEmpty(item.getStale())&&item.getStale().isEnable()&&timeout>0){
+                            builder.staleTimeout(item.getStale().getTimeout()).refreshExecutor(cacheRedisRefreshExecutor);
+                        }
+                        //配置布隆过滤器
+                        if(!ObjectUtils.isEmpty(item.getBloom())&&item.getBloom().isEnable()){
+                            CacheRedisSingleItem.Bloom bloom=item.getBloom();
+                            builder.bloomFilter(new CacheBloomFilter(item.getName(),allkeyPrefix+"_bf_"+item.getName(),
+                                    bloom.getExpectedInsertions(),bloom.getFpp(),bloom.getSync(),pool.getTemplate(),cacheRedisExecutor));
+                        }
+                        //配置热点key识别,移出热点集合时同时删除本地副本
+                        if(isHotKeyEnable(item)){
+                            CacheRedisSingleItem.HotKey hotKey=item.getHotKey();
+                            final HeapLocalCacheStore hotCache=new HeapLocalCacheStore(hotKey.getCapacity());
+                            builder.hotCache(hotCache).hotTimeout(hotKey.getTimeout())
+                                    .hotKeyDetector(new CacheHotKeyDetector(hotKey.getThreshold(),hotKey.getWindow(),hotKey.getCapacity(),new Consumer<String>() {
+                                        @Override
+                                        public void accept(String key) {
+                                            hotCache.evict(key);
+                                        }
+                                    }));
+                        }
+                        caches.add(builder.build());
                     }
                 }
             }
@@ -161,4 +276,312 @@ public class CacheRedisAutoConfig extends CachingConfigurerSupport {
         return simple;
     }
 
+    /**
+     * 集合参数方法按元素缓存切面
+     * @return batchCacheableAspect
+     */
+    @Bean
+    @ConditionalOnBean({RedisTemplate.class,RedisConnectionFactory.class})
+    @ConditionalOnMissingBean(BatchCacheableAspect.class)
+    public BatchCacheableAspect batchCacheableAspect(){
+        return new BatchCacheableAspect();
+    }
+
+    /**
+     * 单个key方法自动合并批量加载切面
+     * @return batchLoadCacheableAspect
+     */
+    @Bean
+    @ConditionalOnBean({RedisTemplate.class,RedisConnectionFactory.class})
+    @ConditionalOnMissingBean(BatchLoadCacheableAspect.class)
+    public BatchLoadCacheableAspect batchLoadCacheableAspect(){
+        return new BatchLoadCacheableAspect();
+    }
+
+    /**
+     * 结构化缓存切面
+     * @return structuredCacheAspect
+     */
+    @Bean
+    @ConditionalOnBean({RedisTemplate.class,RedisConnectionFactory.class})
+    @ConditionalOnMissingBean(StructuredCacheAspect.class)
+    public StructuredCacheAspect structuredCacheAspect(){
+        return new StructuredCacheAspect();
+    }
+
+    /**
+     * 返回CompletableFuture的@Cacheable方法处理切面
+     * @return completableFutureCacheAspect
+     */
+    @Bean
+    @ConditionalOnBean({RedisTemplate.class,RedisConnectionFactory.class})
+    @ConditionalOnMissingBean(CompletableFutureCacheAspect.class)
+    public CompletableFutureCacheAspect completableFutureCacheAspect(){
+        return new CompletableFutureCacheAspect();
+    }
+
+    /**
+     * 缓存后台任务线程池
+     * @return cacheRedisExecutor
+     */
+    @Bean(name = "cacheRedisExecutor")
+    @ConditionalOnMissingBean(name = "cacheRedisExecutor")
+    public TaskExecutor cacheRedisExecutor(){
+        ThreadPoolTaskExecutor executor=new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(cacheRedisProperties.getTask().getCore());// 线程池维护线程的核心数量
+        executor.setMaxPoolSize(cacheRedisProperties.getTask().getMax());// 线程池维护线程的最大数量
+        executor.setQueueCapacity(cacheRedisProperties.getTask().getQueue());//缓存队列
+        executor.setThreadNamePrefix(cacheRedisProperties.getTask().getPrefix());// 线程池前缀
+        executor.setKeepAliveSeconds(cacheRedisProperties.getTask().getKeep());// 允许的空闲时间
+        // CALLER_RUNS：队列已满时由调用者所在的线程来执行
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 缓存提前刷新线程池
+     * 队列满时拒绝任务，本次不刷新，不占用调用方线程
+     * @return cacheRedisRefreshExecutor
+     */
+    @Bean(name = "cacheRedisRefreshExecutor")
+    @ConditionalOnMissingBean(name = "cacheRedisRefreshExecutor")
+    public TaskExecutor cacheRedisRefreshExecutor(){
+        CacheRedisProperties.Task refresh=cacheRedisProperties.getRefresh();
+        ThreadPoolTaskExecutor executor=new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(refresh.getCore());
+        executor.setMaxPoolSize(refresh.getMax());
+        executor.setQueueCapacity(refresh.getQueue());
+        executor.setThreadNamePrefix(refresh.getPrefix());
+        executor.setKeepAliveSeconds(refresh.getKeep());
+        // ABORT：队列已满时拒绝，由缓存放弃本次刷新
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 缓存异步访问线程池
+     * 队列满时拒绝任务，返回异常完成的future，不占用调用方线程
+     * @return cacheRedisAsyncExecutor
+     */
+    @Bean(name = "cacheRedisAsyncExecutor")
+    @ConditionalOnMissingBean(name = "cacheRedisAsyncExecutor")
+    public TaskExecutor cacheRedisAsyncExecutor(){
+        CacheRedisProperties.Task async=cacheRedisProperties.getAsync();
+        ThreadPoolTaskExecutor executor=new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(async.getCore());
+        executor.setMaxPoolSize(async.getMax());
+        executor.setQueueCapacity(async.getQueue());
+        executor.setThreadNamePrefix(async.getPrefix());
+        executor.setKeepAliveSeconds(async.getKeep());
+        // ABORT：队列已满时拒绝，由缓存返回异常完成的future
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * redis访问熔断器，所有单项缓存共用
+     * @return cacheRedisCircuitBreaker
+     */
+    @Bean
+    @ConditionalOnMissingBean(CacheRedisCircuitBreaker.class)
+    @ConditionalOnProperty(prefix="cache.redis.breaker",name = "enable", havingValue = "true")
+    public CacheRedisCircuitBreaker cacheRedisCircuitBreaker(){
+        CacheRedisProperties.Breaker breaker=cacheRedisProperties.getBreaker();
+        return new CacheRedisCircuitBreaker("cache-redis",breaker.getWindow(),breaker.getMinimumCalls(),breaker.getFailureRate(),
+                breaker.getSlowCall(),breaker.getSlowCallRate(),breaker.getOpen(),breaker.getHalfOpenCalls());
+    }
+
+    /**
+     * 缓存启动预热，包含注册的预热来源bean和单项缓存配置的预热
+     * @return cacheWarmUpEngine
+     */
+    @Bean
+    @ConditionalOnBean({RedisTemplate.class,RedisConnectionFactory.class})
+    @ConditionalOnMissingBean(CacheWarmUpEngine.class)
+    @ConditionalOnProperty(prefix="cache.redis.warm-up",name = "enable", havingValue = "true")
+    public CacheWarmUpEngine cacheWarmUpEngine(CacheRedisManager simpleCacheManager,BeanFactory beanFactory,
+                                               ObjectProvider<List<CacheWarmUpSource>> sourcesProvider){
+        List<CacheWarmUpSource> sources=new ArrayList<CacheWarmUpSource>();
+        if(!CollectionUtils.isEmpty(sourcesProvider.getIfAvailable())){
+            sources.addAll(sourcesProvider.getIfAvailable());
+        }
+        if(!CollectionUtils.isEmpty(cacheRedisProperties.getItems())){
+            for(CacheRedisSingleItem item:cacheRedisProperties.getItems()){
+                if(!ObjectUtils.isEmpty(item)&&!ObjectUtils.isEmpty(item.getWarmUp())&&!StringUtils.isEmpty(item.getWarmUp().getLoader())){
+                    CacheRedisSingleItem.WarmUp warmUp=item.getWarmUp();
+                    sources.add(new SpelCacheWarmUpSource(item.getName(),warmUp.getKeys(),warmUp.getKeysExpression(),warmUp.getLoader(),beanFactory));
+                }
+            }
+        }
+        return new CacheWarmUpEngine(simpleCacheManager,sources,cacheRedisProperties.getWarmUp());
+    }
+
+    /**
+     * 命名redis连接池，default为spring.redis
+     * @return cacheRedisPools
+     */
+    @Bean
+    @ConditionalOnBean({RedisTemplate.class,RedisConnectionFactory.class})
+    @ConditionalOnMissingBean(CacheRedisPools.class)
+    public CacheRedisPools cacheRedisPools(RedisTemplate<Object, Object> redisTemplate,RedisConnectionFactory factory){
+        return new CacheRedisPools(redisTemplate,factory,cacheRedisProperties.getPools());
+    }
+
+    /**
+     * 缓存读取路由，副本连接复制主节点的密码、数据库、超时和连接池配置
+     * @return cacheReadRouter
+     */
+    @Bean
+    @ConditionalOnBean({RedisTemplate.class,RedisConnectionFactory.class})
+    @ConditionalOnMissingBean(CacheReadRouter.class)
+    @ConditionalOnProperty(prefix="cache.redis.replica",name = "enable", havingValue = "true")
+    public CacheReadRouter cacheReadRouter(RedisConnectionFactory factory){
+        CacheRedisProperties.Replica replica=cacheRedisProperties.getReplica();
+        List<CacheReadRouter.Node> nodes=new ArrayList<CacheReadRouter.Node>();
+        if(!(factory instanceof JedisConnectionFactory)){
+            log.warn("redis cache replica read only supports jedis, factory:{}",factory.getClass().getName());
+        }else if(!CollectionUtils.isEmpty(replica.getNodes())){
+            JedisConnectionFactory master=(JedisConnectionFactory)factory;
+            for(String node:replica.getNodes()){
+                String address=node.trim();
+                int index=address.lastIndexOf(':');
+                JedisConnectionFactory replicaFactory=new JedisConnectionFactory(master.getPoolConfig());
+                replicaFactory.setHostName(index>0?address.substring(0,index):address);
+                replicaFactory.setPort(index>0?Integer.parseInt(address.substring(index+1)):6379);
+                replicaFactory.setPassword(master.getPassword());
+                replicaFactory.setDatabase(master.getDatabase());
+                replicaFactory.setTimeout(master.getTimeout());
+                replicaFactory.setUseSsl(master.isUseSsl());
+                replicaFactory.setUsePool(master.getUsePool());
+                replicaFactory.afterPropertiesSet();
+                RedisTemplate<Object,Object> template=new RedisTemplate<Object,Object>();
+                template.setConnectionFactory(replicaFactory);
+                template.afterPropertiesSet();
+                nodes.add(new CacheReadRouter.Node(address,template,replicaFactory));
+            }
+        }
+        return new CacheReadRouter(nodes,replica.getDownTime());
+    }
+
+    /**
+     * 本地一级缓存跨节点失效监听
+     */
+    @Bean
+    @ConditionalOnBean({RedisTemplate.class,RedisConnectionFactory.class})
+    @ConditionalOnMissingBean(CacheRedisInvalidationListener.class)
+    public CacheRedisInvalidationListener cacheRedisInvalidationListener(SimpleCacheManager simpleCacheManager) {
+        return new CacheRedisInvalidationListener(simpleCacheManager);
+    }
+
+    /**
+     * 本地一级缓存失效消息订阅容器
+     * 没有开启本地缓存、热点key识别或generation清空方式的单项时，不订阅通道；命名连接池同时订阅
+     */
+    @Bean
+    @ConditionalOnBean({RedisTemplate.class,RedisConnectionFactory.class})
+    public RedisMessageListenerContainer cacheRedisListenerContainer(RedisConnectionFactory factory,CacheRedisInvalidationListener cacheRedisInvalidationListener,
+                                                                     ObjectProvider<CacheRedisPools> poolsProvider) {
+        RedisMessageListenerContainer container=new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        if(!CollectionUtils.isEmpty(cacheRedisProperties.getItems())){
+            for(CacheRedisSingleItem item:cacheRedisProperties.getItems()){
+                if(!ObjectUtils.isEmpty(item)&&(isLocalEnable(item)||isHotKeyEnable(item)||CacheClearMode.GENERATION==item.getClearMode())){
+                    container.addMessageListener(cacheRedisInvalidationListener,new ChannelTopic(cacheRedisProperties.getChannel()));
+                    CacheRedisPools pools=poolsProvider.getIfAvailable();
+                    if(pools!=null){
+                        pools.subscribe(cacheRedisInvalidationListener,new ChannelTopic(cacheRedisProperties.getChannel()));
+                    }
+                    break;
+                }
+            }
+        }
+        return container;
+    }
+
+    /**
+     * 创建单项缓存编解码
+     * 写入使用配置的序列化方式，读取支持全部已知序列化方式
+     * @param item 单项缓存配置
+     * @return codec
+     */
+    private CacheValueCodec createCodec(CacheRedisSingleItem item){
+        List<CacheValueSerializer> serializers=new ArrayList<CacheValueSerializer>();
+        serializers.add(jdkSerializer);
+        serializers.add(jsonSerializer);
+        if(ClassUtils.isPresent(KRYO_CLASS,getClass().getClassLoader())){
+            List<Class<?>> classes=new ArrayList<Class<?>>();
+            if(!CollectionUtils.isEmpty(item.getSerializerClasses())){
+                for(String className:item.getSerializerClasses()){
+                    classes.add(ClassUtils.resolveClassName(className.trim(),getClass().getClassLoader()));
+                }
+            }
+            serializers.add(new KryoCacheValueSerializer(classes));
+        }
+        if(!CollectionUtils.isEmpty(cacheValueSerializers)){
+            serializers.addAll(cacheValueSerializers);
+        }
+        String name=StringUtils.isEmpty(item.getSerializer())?JdkCacheValueSerializer.NAME:item.getSerializer().trim();
+        CacheValueSerializer writer=null;
+        for(CacheValueSerializer serializer:serializers){
+            if(serializer.getName().equalsIgnoreCase(name)){
+                writer=serializer;
+                break;
+            }
+        }
+        if(writer==null){
+            throw new IllegalArgumentException("redis cache item "+item.getName()+" serializer not found:"+name);
+        }
+        //压缩方式
+        List<CacheValueCompressor> compressors=new ArrayList<CacheValueCompressor>();
+        compressors.add(deflateCompressor);
+        if(ClassUtils.isPresent(LZ4_CLASS,getClass().getClassLoader())){
+            if(lz4Compressor==null){
+                lz4Compressor=new Lz4CacheValueCompressor();
+            }
+            compressors.add(lz4Compressor);
+        }
+        CacheValueCompressor compressor=null;
+        if(!StringUtils.isEmpty(item.getCompression())&&!"none".equalsIgnoreCase(item.getCompression().trim())){
+            for(CacheValueCompressor candidate:compressors){
+                if(candidate.getName().equalsIgnoreCase(item.getCompression().trim())){
+                    compressor=candidate;
+                    break;
+                }
+            }
+            if(compressor==null){
+                throw new IllegalArgumentException("redis cache item "+item.getName()+" compression not found:"+item.getCompression());
+            }
+        }
+        return new CacheValueCodec(writer,serializers,compressor,item.getCompressionThreshold(),compressors);
+    }
+
+    /**
+     * 创建单项缓存过期策略，单项未配置时使用全局配置
+     * @param item 单项缓存配置
+     * @return 不需要调整时返回null
+     */
+    private CacheExpiryPolicy createExpiryPolicy(CacheRedisSingleItem item){
+        CacheRedisExpiry expiry=!ObjectUtils.isEmpty(item.getExpiry())?item.getExpiry():cacheRedisProperties.getExpiry();
+        if(ObjectUtils.isEmpty(expiry)||!expiry.isEnabled()){
+            return null;
+        }
+        return new CacheExpiryPolicy(expiry.getJitterPercent(),expiry.getJitterRange(),expiry.getMaxPerSecond(),expiry.getWindow());
+    }
+
+    /*单项缓存是否开启本地一级缓存*/
+    private boolean isLocalEnable(CacheRedisSingleItem item){
+        return !ObjectUtils.isEmpty(item.getLocal())&&item.getLocal().isEnable();
+    }
+
+    /*单项缓存是否开启热点key识别*/
+    private boolean isHotKeyEnable(CacheRedisSingleItem item){
+        return !ObjectUtils.isEmpty(item.getHotKey())&&item.getHotKey().isEnable();
+    }
+
 }
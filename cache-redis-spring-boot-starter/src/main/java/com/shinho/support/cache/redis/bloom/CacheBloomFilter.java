@@ -0,0 +1,266 @@
+package com.shinho.support.cache.redis.bloom;
+
+import com.shinho.support.cache.redis.generator.Murmur3KeyHasher;
+import com.shinho.support.cache.redis.repository.CacheRedisCommands;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author 傅为地
+ * 缓存布隆过滤器，记录确实存在的缓存key，用于拒绝一定不存在的key，防止缓存穿透
+ * 本地位数组用于判断，不访问redis；写入同时设置redis位图，多个节点按间隔从redis位图合并
+ * 只有调用markReady标记全部存在的key已写入后才开始拒绝，避免未初始化时误拒绝
+ * 位顺序与redis SETBIT一致，位i位于第i/8字节的高位起第i%8位
+ */
+@Slf4j
+public class CacheBloomFilter {
+
+    //就绪标记key后缀
+    private static final String READY_SUFFIX = "_ready";
+
+    private final String name;
+
+    private final RedisTemplate<?, ?> redisTemplate;
+
+    private final TaskExecutor executor;
+
+    private final byte[] bitmapKey;
+
+    private final byte[] readyKey;
+
+    //位数
+    private final long bitSize;
+
+    //哈希函数个数
+    private final int hashCount;
+
+    private final AtomicLongArray words;
+
+    //从redis合并的间隔(毫秒)
+    private final long syncInterval;
+
+    private final AtomicLong syncedAt = new AtomicLong(0L);
+
+    private final AtomicBoolean ready = new AtomicBoolean(false);
+
+    /**
+     * @param name 缓存名称
+     * @param redisKey redis位图key
+     * @param expectedInsertions 预计key数量
+     * @param fpp 误判率
+     * @param syncInterval 从redis合并的间隔(毫秒)
+     * @param redisTemplate redisTemplate
+     * @param executor 后台合并线程池,为null时在调用线程合并
+     */
+    public CacheBloomFilter(String name, String redisKey, long expectedInsertions, double fpp, long syncInterval,
+                            RedisTemplate<?, ?> redisTemplate, TaskExecutor executor) {
+        long n = Math.max(1L, expectedInsertions);
+        double p = fpp > 0 && fpp < 1 ? fpp : 0.01;
+        //m = -n*ln(p)/(ln2)^2 ,按64位对齐,redis位图最大2^32位
+        long bits = (long) (-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        this.bitSize = Math.min(Math.max(64L, (bits + 63) / 64 * 64), 1L << 32);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / n * Math.log(2)));
+        this.words = new AtomicLongArray((int) (bitSize / 64));
+        this.name = name;
+        this.bitmapKey = redisKey.getBytes(StandardCharsets.UTF_8);
+        this.readyKey = (redisKey + READY_SUFFIX).getBytes(StandardCharsets.UTF_8);
+        this.syncInterval = syncInterval;
+        this.redisTemplate = redisTemplate;
+        this.executor = executor;
+    }
+
+    /**
+     * key是否可能存在，未就绪时始终返回true
+     * @param key 缓存key
+     * @return false表示一定不存在
+     */
+    public boolean mightContain(String key) {
+        syncIfNecessary();
+        if (!ready.get()) {
+            return true;
+        }
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            if (!isSet(offset(h1, h2, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 写入存在的key，同时设置本地和redis位图
+     * @param key 缓存key
+     */
+    public void put(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        final long[] offsets = new long[hashCount];
+        boolean changed = false;
+        for (int i = 1; i <= hashCount; i++) {
+            offsets[i - 1] = offset(h1, h2, i);
+            changed |= set(offsets[i - 1]);
+        }
+        if (!changed) {
+            return;
+        }
+        try {
+            redisTemplate.execute(new RedisCallback<Long>() {
+                @Override
+                public Long doInRedis(RedisConnection connection) throws DataAccessException {
+                    return CacheRedisCommands.setBits(connection, bitmapKey, offsets);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("redis cache bloom filter put error name:{},key:{},error:", name, key, e);
+        }
+    }
+
+    /**
+     * 批量写入存在的key，用于启动时初始化
+     * @param keys 缓存key
+     */
+    public void putAll(Collection<?> keys) {
+        for (Object key : keys) {
+            if (key != null) {
+                put(key.toString());
+            }
+        }
+    }
+
+    /**
+     * 标记全部存在的key已写入，所有节点开始拒绝不存在的key
+     */
+    public void markReady() {
+        redisTemplate.execute(new RedisCallback<Boolean>() {
+            @Override
+            public Boolean doInRedis(RedisConnection connection) throws DataAccessException {
+                connection.set(readyKey, "1".getBytes(StandardCharsets.UTF_8));
+                return true;
+            }
+        });
+        ready.set(true);
+    }
+
+    /**
+     * 从redis位图合并其他节点写入的key
+     */
+    public void sync() {
+        try {
+            byte[][] values = redisTemplate.execute(new RedisCallback<byte[][]>() {
+                @Override
+                public byte[][] doInRedis(RedisConnection connection) throws DataAccessException {
+                    return new byte[][]{connection.get(readyKey), connection.get(bitmapKey)};
+                }
+            });
+            byte[] bitmap = values[1];
+            if (bitmap != null) {
+                int length = Math.min(bitmap.length, words.length() * 8);
+                for (int w = 0; w * 8 < length; w++) {
+                    long word = 0L;
+                    for (int b = 0; b < 8; b++) {
+                        int index = w * 8 + b;
+                        word = (word << 8) | (index < length ? bitmap[index] & 0xFFL : 0L);
+                    }
+                    if (word != 0L) {
+                        orWord(w, word);
+                    }
+                }
+            }
+            if (values[0] != null) {
+                ready.set(true);
+            }
+        } catch (RuntimeException e) {
+            log.error("redis cache bloom filter sync error name:{},error:", name, e);
+        }
+    }
+
+    public boolean isReady() {
+        return ready.get();
+    }
+
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /*按间隔后台合并redis位图*/
+    private void syncIfNecessary() {
+        long now = System.currentTimeMillis();
+        long last = syncedAt.get();
+        if (now - last < syncInterval || !syncedAt.compareAndSet(last, now)) {
+            return;
+        }
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                sync();
+            }
+        };
+        if (executor != null) {
+            executor.execute(task);
+        } else {
+            task.run();
+        }
+    }
+
+    /*按long计算组合哈希,位图超过2^31位时也能覆盖全部位*/
+    private long offset(int h1, int h2, int i) {
+        long combined = h1 + (long) i * h2;
+        return Math.floorMod(combined, bitSize);
+    }
+
+    private boolean isSet(long offset) {
+        return (words.get((int) (offset >>> 6)) & mask(offset)) != 0;
+    }
+
+    /*设置位,返回是否发生变化*/
+    private boolean set(long offset) {
+        int index = (int) (offset >>> 6);
+        long mask = mask(offset);
+        while (true) {
+            long word = words.get(index);
+            if ((word & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, word, word | mask)) {
+                return true;
+            }
+        }
+    }
+
+    private void orWord(int index, long bits) {
+        while (true) {
+            long word = words.get(index);
+            if ((word | bits) == word || words.compareAndSet(index, word, word | bits)) {
+                return;
+            }
+        }
+    }
+
+    private static long mask(long offset) {
+        return 1L << (63 - (offset & 63));
+    }
+
+    private static long hash(String key) {
+        Murmur3KeyHasher hasher = new Murmur3KeyHasher().reset(0L);
+        hasher.putChars(key);
+        return hasher.asLong();
+    }
+}
@@ -0,0 +1,14 @@
+package com.shinho.support.cache.redis.breaker;
+
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+/**
+ * @author 傅为地
+ * redis熔断打开，快速失败，不再访问redis
+ */
+public class CacheRedisBreakerOpenException extends RedisConnectionFailureException {
+
+    public CacheRedisBreakerOpenException(String name) {
+        super("redis cache circuit breaker is open, name:" + name);
+    }
+}
@@ -0,0 +1,253 @@
+package com.shinho.support.cache.redis.breaker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author 傅为地
+ * redis访问熔断器
+ * 按时间分桶统计最近窗口内的调用次数、失败次数和慢调用次数，
+ * 调用数达到最小值且失败率或慢调用率超过阈值时打开，打开期间直接拒绝访问redis；
+ * 打开一段时间后半开，放行少量探测调用，全部成功则关闭，任一失败或慢调用则重新打开
+ */
+@Slf4j
+public class CacheRedisCircuitBreaker {
+
+    /**
+     * 熔断状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    //统计窗口分桶数量
+    private static final int BUCKET_COUNT = 10;
+
+    private final String name;
+
+    private final long bucketMillis;
+
+    private final int minimumCalls;
+
+    private final int failureRate;
+
+    private final long slowCallNanos;
+
+    private final int slowCallRate;
+
+    private final long openMillis;
+
+    private final int halfOpenCalls;
+
+    private final Bucket[] buckets = new Bucket[BUCKET_COUNT];
+
+    private final AtomicReference<State> state = new AtomicReference<State>(State.CLOSED);
+
+    //打开时刻
+    private volatile long openedAt;
+
+    //半开状态剩余探测次数
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+
+    //半开状态探测成功次数
+    private final AtomicInteger halfOpenSuccess = new AtomicInteger();
+
+    //累计打开次数
+    private final LongAdder openCount = new LongAdder();
+
+    //累计拒绝次数
+    private final LongAdder rejectCount = new LongAdder();
+
+    /**
+     * @param name 熔断器名称
+     * @param windowMillis 统计窗口毫秒数
+     * @param minimumCalls 窗口内最少调用次数,不足时不打开
+     * @param failureRate 失败率阈值(百分比)
+     * @param slowCallMillis 慢调用毫秒数
+     * @param slowCallRate 慢调用率阈值(百分比)
+     * @param openMillis 打开持续毫秒数,之后进入半开
+     * @param halfOpenCalls 半开状态探测次数
+     */
+    public CacheRedisCircuitBreaker(String name, long windowMillis, int minimumCalls, int failureRate,
+                                    long slowCallMillis, int slowCallRate, long openMillis, int halfOpenCalls) {
+        this.name = name;
+        this.bucketMillis = Math.max(1L, windowMillis / BUCKET_COUNT);
+        this.minimumCalls = Math.max(1, minimumCalls);
+        this.failureRate = failureRate;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.slowCallRate = slowCallRate;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    /**
+     * 是否允许访问redis
+     * @return boolean
+     */
+    public boolean allowRequest() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                rejectCount.increment();
+                return false;
+            }
+            if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                halfOpenSuccess.set(0);
+                halfOpenPermits.set(halfOpenCalls);
+                log.info("redis cache circuit breaker half open, name:{}", name);
+            }
+        }
+        if (halfOpenPermits.getAndDecrement() > 0) {
+            return true;
+        }
+        rejectCount.increment();
+        return false;
+    }
+
+    /**
+     * 记录成功调用
+     * @param elapsedNanos 调用耗时
+     */
+    public void onSuccess(long elapsedNanos) {
+        boolean slow = elapsedNanos >= slowCallNanos;
+        if (state.get() == State.HALF_OPEN) {
+            if (slow) {
+                open(State.HALF_OPEN);
+            } else if (halfOpenSuccess.incrementAndGet() >= halfOpenCalls && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                reset();
+                log.info("redis cache circuit breaker closed, name:{}", name);
+            }
+            return;
+        }
+        Bucket bucket = currentBucket();
+        bucket.calls.increment();
+        if (slow) {
+            bucket.slowCalls.increment();
+            evaluate();
+        }
+    }
+
+    /**
+     * 记录失败调用
+     * @param elapsedNanos 调用耗时
+     */
+    public void onError(long elapsedNanos) {
+        if (state.get() == State.HALF_OPEN) {
+            open(State.HALF_OPEN);
+            return;
+        }
+        Bucket bucket = currentBucket();
+        bucket.calls.increment();
+        bucket.failures.increment();
+        if (elapsedNanos >= slowCallNanos) {
+            bucket.slowCalls.increment();
+        }
+        evaluate();
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getOpenCount() {
+        return openCount.sum();
+    }
+
+    public long getRejectCount() {
+        return rejectCount.sum();
+    }
+
+    /*窗口内失败率或慢调用率超过阈值时打开*/
+    private void evaluate() {
+        if (state.get() != State.CLOSED) {
+            return;
+        }
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        long calls = 0;
+        long failures = 0;
+        long slowCalls = 0;
+        for (Bucket bucket : buckets) {
+            if (epoch - bucket.epoch < BUCKET_COUNT) {
+                calls += bucket.calls.sum();
+                failures += bucket.failures.sum();
+                slowCalls += bucket.slowCalls.sum();
+            }
+        }
+        if (calls < minimumCalls) {
+            return;
+        }
+        if (failures * 100 >= calls * failureRate || slowCalls * 100 >= calls * slowCallRate) {
+            log.warn("redis cache circuit breaker open, name:{},calls:{},failures:{},slowCalls:{}", name, calls, failures, slowCalls);
+            open(State.CLOSED);
+        }
+    }
+
+    /*打开熔断*/
+    private void open(State from) {
+        if (state.compareAndSet(from, State.OPEN)) {
+            openedAt = System.currentTimeMillis();
+            openCount.increment();
+            if (from == State.HALF_OPEN) {
+                log.warn("redis cache circuit breaker probe failed, reopen name:{}", name);
+            }
+        }
+    }
+
+    /*清空统计*/
+    private void reset() {
+        for (Bucket bucket : buckets) {
+            synchronized (bucket) {
+                bucket.reset(0L);
+            }
+        }
+    }
+
+    /*当前时间所在分桶,过期分桶重置后复用*/
+    private Bucket currentBucket() {
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        Bucket bucket = buckets[(int) (epoch % BUCKET_COUNT)];
+        if (bucket.epoch != epoch) {
+            synchronized (bucket) {
+                if (bucket.epoch != epoch) {
+                    bucket.reset(epoch);
+                }
+            }
+        }
+        return bucket;
+    }
+
+    /**
+     * 单个时间分桶
+     */
+    private static class Bucket {
+
+        private volatile long epoch;
+
+        private final LongAdder calls = new LongAdder();
+
+        private final LongAdder failures = new LongAdder();
+
+        private final LongAdder slowCalls = new LongAdder();
+
+        void reset(long epoch) {
+            calls.reset();
+            failures.reset();
+            slowCalls.reset();
+            this.epoch = epoch;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.shinho.support.cache.redis.generator;
+
+/**
+ * @author 傅为地
+ * 自定义类型缓存key提取
+ * 注册为spring bean后，该类型(含子类)参数只写入提取的字段，例如只使用实体的id和版本号生成key
+ */
+public interface CacheKeyExtractor<T> {
+
+    /**
+     * 处理的参数类型
+     * @return type
+     */
+    Class<T> getType();
+
+    /**
+     * 将参数中参与生成key的字段写入sink
+     * @param value 参数对象,不为null
+     * @param sink 哈希输入
+     */
+    void extract(T value, CacheKeySink sink);
+}
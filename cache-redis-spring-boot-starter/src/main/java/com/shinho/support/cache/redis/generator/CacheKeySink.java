@@ -0,0 +1,28 @@
+package com.shinho.support.cache.redis.generator;
+
+/**
+ * @author 傅为地
+ * 缓存key哈希输入
+ * 参数直接写入哈希计算，不生成中间字符串
+ */
+public interface CacheKeySink {
+
+    CacheKeySink putBoolean(boolean value);
+
+    CacheKeySink putInt(int value);
+
+    CacheKeySink putLong(long value);
+
+    CacheKeySink putDouble(double value);
+
+    CacheKeySink putString(CharSequence value);
+
+    CacheKeySink putBytes(byte[] value);
+
+    /**
+     * 写入任意对象，按类型选择处理方式
+     * @param value 参数对象
+     * @return sink
+     */
+    CacheKeySink putObject(Object value);
+}
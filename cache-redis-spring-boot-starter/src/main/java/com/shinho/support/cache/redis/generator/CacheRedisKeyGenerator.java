@@ -0,0 +1,347 @@
+package com.shinho.support.cache.redis.generator;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.core.MethodClassKey;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author 傅为地
+ * 缓存key生成器
+ * 类名+方法签名预先计算为哈希种子并缓存，参数按类型直接流式写入murmur3 128位哈希，
+ * 不生成json等中间字符串，生成32位十六进制key
+ * 参数处理规则：整数类型统一按long、浮点统一按double处理；List和数组按顺序，Set和Map与顺序无关；
+ * 注册了CacheKeyExtractor的类型只写入提取的字段，其余对象按非static、非transient字段递归处理
+ */
+public class CacheRedisKeyGenerator implements KeyGenerator {
+
+    //对象字段递归最大深度,防止循环引用
+    private static final int MAX_DEPTH = 16;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INTEGRAL = 2;
+    private static final byte TAG_DECIMAL = 3;
+    private static final byte TAG_BOOLEAN = 4;
+    private static final byte TAG_BIG_NUMBER = 5;
+    private static final byte TAG_ENUM = 6;
+    private static final byte TAG_DATE = 7;
+    private static final byte TAG_BYTES = 8;
+    private static final byte TAG_LIST = 9;
+    private static final byte TAG_UNORDERED = 10;
+    private static final byte TAG_MAP = 11;
+    private static final byte TAG_OBJECT = 12;
+    private static final byte TAG_DEEP = 13;
+    private static final byte TAG_CLASS = 14;
+
+    //类名+方法签名哈希种子
+    private final Map<MethodClassKey, Long> methodSeeds = new ConcurrentHashMap<MethodClassKey, Long>();
+
+    //参数类型处理方式
+    private final Map<Class<?>, ClassMeta> classMetas = new ConcurrentHashMap<Class<?>, ClassMeta>();
+
+    private final List<CacheKeyExtractor<?>> extractors;
+
+    private final ThreadLocal<Sink> sinks = new ThreadLocal<Sink>() {
+        @Override
+        protected Sink initialValue() {
+            return new Sink();
+        }
+    };
+
+    public CacheRedisKeyGenerator() {
+        this(null);
+    }
+
+    /**
+     * @param extractors 自定义类型key提取
+     */
+    public CacheRedisKeyGenerator(List<CacheKeyExtractor<?>> extractors) {
+        this.extractors = extractors == null ? Collections.<CacheKeyExtractor<?>>emptyList() : new ArrayList<CacheKeyExtractor<?>>(extractors);
+    }
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        Class<?> targetClass = target.getClass();
+        MethodClassKey methodKey = new MethodClassKey(method, targetClass);
+        Long seed = methodSeeds.get(methodKey);
+        if (seed == null) {
+            seed = methodSeed(targetClass, method);
+            methodSeeds.put(methodKey, seed);
+        }
+        Sink sink = sinks.get();
+        if (sink.depth != 0) {
+            //extractor中再次生成key时使用新的实例
+            sink = new Sink();
+        }
+        sink.hasher.reset(seed);
+        int count = params == null ? 0 : params.length;
+        sink.hasher.putInt(count);
+        for (int i = 0; i < count; i++) {
+            sink.putObject(params[i]);
+        }
+        return sink.hasher.hex();
+    }
+
+    /*类名+方法签名种子*/
+    private long methodSeed(Class<?> targetClass, Method method) {
+        Sink sink = new Sink();
+        sink.hasher.reset(0L);
+        sink.putString(targetClass.toGenericString());
+        sink.putString(method.getName());
+        for (Class<?> type : method.getParameterTypes()) {
+            sink.putString(type.getName());
+        }
+        return sink.hasher.asLong();
+    }
+
+    private ClassMeta classMeta(Class<?> clazz) {
+        ClassMeta meta = classMetas.get(clazz);
+        if (meta == null) {
+            meta = new ClassMeta(clazz, findExtractor(clazz));
+            classMetas.put(clazz, meta);
+        }
+        return meta;
+    }
+
+    private CacheKeyExtractor<?> findExtractor(Class<?> clazz) {
+        CacheKeyExtractor<?> found = null;
+        for (CacheKeyExtractor<?> extractor : extractors) {
+            if (extractor.getType().isAssignableFrom(clazz)
+                    && (found == null || found.getType().isAssignableFrom(extractor.getType()))) {
+                found = extractor;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 参数类型处理方式，首次使用时解析
+     */
+    private static class ClassMeta {
+
+        private final long classHash;
+
+        private final CacheKeyExtractor<Object> extractor;
+
+        private final Field[] fields;
+
+        //jdk内置类型(如UUID、LocalDate)使用toString,不反射内部字段
+        private final boolean useToString;
+
+        @SuppressWarnings("unchecked")
+        ClassMeta(Class<?> clazz, CacheKeyExtractor<?> extractor) {
+            Murmur3KeyHasher hasher = new Murmur3KeyHasher().reset(0L);
+            String name = clazz.getName();
+            hasher.putChars(name);
+            this.classHash = hasher.asLong();
+            this.extractor = (CacheKeyExtractor<Object>) extractor;
+            this.useToString = extractor == null && (name.startsWith("java.") || name.startsWith("javax."));
+            final List<Field> list = new ArrayList<Field>();
+            if (extractor == null && !useToString && !ClassUtils.isPrimitiveOrWrapper(clazz)) {
+                ReflectionUtils.doWithFields(clazz, new ReflectionUtils.FieldCallback() {
+                    @Override
+                    public void doWith(Field field) {
+                        ReflectionUtils.makeAccessible(field);
+                        list.add(field);
+                    }
+                }, new ReflectionUtils.FieldFilter() {
+                    @Override
+                    public boolean matches(Field field) {
+                        int modifiers = field.getModifiers();
+                        return !Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic();
+                    }
+                });
+            }
+            this.fields = list.toArray(new Field[list.size()]);
+        }
+    }
+
+    /**
+     * 带类型标记的哈希输入
+     */
+    private class Sink implements CacheKeySink {
+
+        private final Murmur3KeyHasher hasher = new Murmur3KeyHasher();
+
+        private int depth;
+
+        //无序集合元素使用的下一层实例,随线程缓存的实例一起复用
+        private Sink child;
+
+        @Override
+        public CacheKeySink putBoolean(boolean value) {
+            hasher.putByte(TAG_BOOLEAN);
+            hasher.putByte(value ? 1 : 0);
+            return this;
+        }
+
+        @Override
+        public CacheKeySink putInt(int value) {
+            return putLong(value);
+        }
+
+        @Override
+        public CacheKeySink putLong(long value) {
+            hasher.putByte(TAG_INTEGRAL);
+            hasher.putLong(value);
+            return this;
+        }
+
+        @Override
+        public CacheKeySink putDouble(double value) {
+            hasher.putByte(TAG_DECIMAL);
+            hasher.putLong(Double.doubleToLongBits(value));
+            return this;
+        }
+
+        @Override
+        public CacheKeySink putString(CharSequence value) {
+            hasher.putByte(TAG_STRING);
+            hasher.putInt(value.length());
+            hasher.putChars(value);
+            return this;
+        }
+
+        @Override
+        public CacheKeySink putBytes(byte[] value) {
+            hasher.putByte(TAG_BYTES);
+            hasher.putInt(value.length);
+            hasher.putBytes(value);
+            return this;
+        }
+
+        @Override
+        public CacheKeySink putObject(Object value) {
+            if (value == null) {
+                hasher.putByte(TAG_NULL);
+                return this;
+            }
+            //常用final类型按class直接匹配,避免逐个instanceof
+            Class<?> clazz = value.getClass();
+            if (clazz == String.class) {
+                putString((String) value);
+            } else if (clazz == Long.class || clazz == Integer.class) {
+                putLong(((Number) value).longValue());
+            } else if (value instanceof CharSequence) {
+                putString((CharSequence) value);
+            } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                putLong(((Number) value).longValue());
+            } else if (value instanceof Double || value instanceof Float) {
+                putDouble(((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                putBoolean((Boolean) value);
+            } else if (value instanceof Character) {
+                hasher.putByte(TAG_STRING);
+                hasher.putInt(1);
+                hasher.putShort((Character) value);
+            } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+                hasher.putByte(TAG_BIG_NUMBER);
+                putString(value instanceof BigDecimal ? ((BigDecimal) value).stripTrailingZeros().toPlainString() : value.toString());
+            } else if (value instanceof Enum) {
+                hasher.putByte(TAG_ENUM);
+                putString(((Enum<?>) value).name());
+            } else if (value instanceof Date) {
+                hasher.putByte(TAG_DATE);
+                hasher.putLong(((Date) value).getTime());
+            } else if (value instanceof byte[]) {
+                putBytes((byte[]) value);
+            } else if (value instanceof Class) {
+                hasher.putByte(TAG_CLASS);
+                putString(((Class<?>) value).getName());
+            } else if (depth >= MAX_DEPTH) {
+                hasher.putByte(TAG_DEEP);
+                hasher.putLong(classMeta(value.getClass()).classHash);
+            } else {
+                depth++;
+                try {
+                    putComplex(value);
+                } finally {
+                    depth--;
+                }
+            }
+            return this;
+        }
+
+        /*集合、数组、Map及普通对象*/
+        private void putComplex(Object value) {
+            if (value instanceof List) {
+                List<?> list = (List<?>) value;
+                hasher.putByte(TAG_LIST);
+                hasher.putInt(list.size());
+                for (Object item : list) {
+                    putObject(item);
+                }
+            } else if (value.getClass().isArray()) {
+                int length = Array.getLength(value);
+                hasher.putByte(TAG_LIST);
+                hasher.putInt(length);
+                for (int i = 0; i < length; i++) {
+                    putObject(Array.get(value, i));
+                }
+            } else if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                long sum = 0L;
+                long xor = 0L;
+                for (Object item : collection) {
+                    long hash = childHash(item, null, false);
+                    sum += hash;
+                    xor ^= hash;
+                }
+                hasher.putByte(TAG_UNORDERED);
+                hasher.putInt(collection.size());
+                hasher.putLong(sum);
+                hasher.putLong(xor);
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                long sum = 0L;
+                long xor = 0L;
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    long hash = childHash(entry.getKey(), entry.getValue(), true);
+                    sum += hash;
+                    xor ^= hash;
+                }
+                hasher.putByte(TAG_MAP);
+                hasher.putInt(map.size());
+                hasher.putLong(sum);
+                hasher.putLong(xor);
+            } else {
+                ClassMeta meta = classMeta(value.getClass());
+                hasher.putByte(TAG_OBJECT);
+                hasher.putLong(meta.classHash);
+                if (meta.extractor != null) {
+                    meta.extractor.extract(value, this);
+                } else if (meta.useToString) {
+                    putString(value.toString());
+                } else {
+                    for (Field field : meta.fields) {
+                        putObject(ReflectionUtils.getField(field, value));
+                    }
+                }
+            }
+        }
+
+        /*无序集合元素单独计算哈希,合并结果与顺序无关*/
+        private long childHash(Object key, Object value, boolean entry) {
+            if (child == null) {
+                child = new Sink();
+            }
+            child.depth = depth;
+            child.hasher.reset(0L);
+            child.putObject(key);
+            if (entry) {
+                child.putObject(value);
+            }
+            return child.hasher.asLong();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.shinho.support.cache.redis.generator;
+
+import java.util.Arrays;
+
+/**
+ * @author 傅为地
+ * murmur3 x64 128位哈希
+ * 输入按小端顺序写入可复用的缓冲区，结束时按16字节块计算，
+ * 非线程安全，同一线程内通过reset重复使用
+ */
+public class Murmur3KeyHasher {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    //缓冲区超过该大小时,reset后收缩,避免长期占用大数组
+    private static final int MAX_RETAINED = 16 * 1024;
+
+    private byte[] buffer = new byte[256];
+
+    private int position;
+
+    private long seed;
+
+    private long h1;
+
+    private long h2;
+
+    public Murmur3KeyHasher reset(long seed) {
+        this.seed = seed;
+        this.position = 0;
+        if (buffer.length > MAX_RETAINED) {
+            buffer = new byte[256];
+        }
+        return this;
+    }
+
+    public void putByte(int b) {
+        ensure(1);
+        buffer[position++] = (byte) b;
+    }
+
+    public void putShort(int value) {
+        ensure(2);
+        byte[] buf = buffer;
+        int pos = position;
+        buf[pos] = (byte) value;
+        buf[pos + 1] = (byte) (value >>> 8);
+        position = pos + 2;
+    }
+
+    public void putInt(int value) {
+        ensure(4);
+        byte[] buf = buffer;
+        int pos = position;
+        buf[pos] = (byte) value;
+        buf[pos + 1] = (byte) (value >>> 8);
+        buf[pos + 2] = (byte) (value >>> 16);
+        buf[pos + 3] = (byte) (value >>> 24);
+        position = pos + 4;
+    }
+
+    public void putLong(long value) {
+        ensure(8);
+        byte[] buf = buffer;
+        int pos = position;
+        for (int i = 0; i < 8; i++) {
+            buf[pos + i] = (byte) (value >>> (i << 3));
+        }
+        position = pos + 8;
+    }
+
+    /**
+     * 写入字符序列，每个字符2字节
+     * @param value 字符序列
+     */
+    public void putChars(CharSequence value) {
+        int length = value.length();
+        ensure(length << 1);
+        byte[] buf = buffer;
+        int pos = position;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            buf[pos++] = (byte) c;
+            buf[pos++] = (byte) (c >>> 8);
+        }
+        position = pos;
+    }
+
+    public void putBytes(byte[] value) {
+        ensure(value.length);
+        System.arraycopy(value, 0, buffer, position, value.length);
+        position += value.length;
+    }
+
+    /**
+     * 结束计算，返回32位十六进制大写字符串
+     * @return hex
+     */
+    public String hex() {
+        finish();
+        char[] chars = new char[32];
+        writeHex(chars, 0, h1);
+        writeHex(chars, 16, h2);
+        return new String(chars);
+    }
+
+    /**
+     * 结束计算，返回64位摘要
+     * @return hash
+     */
+    public long asLong() {
+        finish();
+        return h1;
+    }
+
+    private void ensure(int size) {
+        if (position + size > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + size));
+        }
+    }
+
+    private void finish() {
+        byte[] buf = buffer;
+        int length = position;
+        h1 = seed;
+        h2 = seed;
+        int blocks = length >>> 4;
+        for (int i = 0; i < blocks; i++) {
+            int offset = i << 4;
+            long k1 = readLong(buf, offset);
+            long k2 = readLong(buf, offset + 8);
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        int tail = blocks << 4;
+        int remaining = length - tail;
+        if (remaining > 0) {
+            long k1 = 0L;
+            long k2 = 0L;
+            for (int i = remaining - 1; i >= 8; i--) {
+                k2 = (k2 << 8) | (buf[tail + i] & 0xFFL);
+            }
+            for (int i = Math.min(remaining, 8) - 1; i >= 0; i--) {
+                k1 = (k1 << 8) | (buf[tail + i] & 0xFFL);
+            }
+            if (remaining > 8) {
+                k2 *= C2;
+                k2 = Long.rotateLeft(k2, 33);
+                k2 *= C1;
+                h2 ^= k2;
+            }
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        }
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+    }
+
+    private static long readLong(byte[] buf, int offset) {
+        return (buf[offset] & 0xFFL)
+                | (buf[offset + 1] & 0xFFL) << 8
+                | (buf[offset + 2] & 0xFFL) << 16
+                | (buf[offset + 3] & 0xFFL) << 24
+                | (buf[offset + 4] & 0xFFL) << 32
+                | (buf[offset + 5] & 0xFFL) << 40
+                | (buf[offset + 6] & 0xFFL) << 48
+                | (buf[offset + 7] & 0xFFL) << 56;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static void writeHex(char[] chars, int offset, long value) {
+        for (int i = 15; i >= 0; i--) {
+            chars[offset + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
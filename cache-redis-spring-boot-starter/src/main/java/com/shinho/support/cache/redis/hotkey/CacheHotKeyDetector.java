@@ -0,0 +1,223 @@
+package com.shinho.support.cache.redis.hotkey;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * @author 傅为地
+ * 热点key识别
+ * 使用Count-Min Sketch统计读取次数，按窗口轮换，估算值=当前窗口计数+上一窗口计数*(窗口剩余比例)，近似滑动窗口；
+ * 估算值达到阈值的key进入热点集合，最多保留capacity个(top-K)，窗口轮换时低于阈值的key移出热点集合并通知
+ */
+public class CacheHotKeyDetector {
+
+    //sketch行数
+    private static final int DEPTH = 4;
+
+    //sketch每行计数器数量,2的幂
+    private static final int WIDTH = 4096;
+
+    //读取次数阈值(每窗口)
+    private final int threshold;
+
+    //窗口毫秒数
+    private final long window;
+
+    //热点集合最大数量
+    private final int capacity;
+
+    //移出热点集合通知
+    private final Consumer<String> demoteListener;
+
+    private volatile AtomicIntegerArray current = new AtomicIntegerArray(DEPTH * WIDTH);
+
+    private volatile AtomicIntegerArray previous = new AtomicIntegerArray(DEPTH * WIDTH);
+
+    //当前窗口开始时刻
+    private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+
+    //热点key与最近估算值
+    private final ConcurrentMap<String, Long> hotKeys = new ConcurrentHashMap<String, Long>();
+
+    //热点副本命中次数
+    private final LongAdder hitCount = new LongAdder();
+
+    //加入热点集合次数
+    private final LongAdder promoteCount = new LongAdder();
+
+    /**
+     * @param threshold 每窗口读取次数阈值
+     * @param window 窗口毫秒数
+     * @param capacity 热点集合最大数量
+     * @param demoteListener 移出热点集合通知,可以为null
+     */
+    public CacheHotKeyDetector(int threshold, long window, int capacity, Consumer<String> demoteListener) {
+        this.threshold = Math.max(1, threshold);
+        this.window = Math.max(1L, window);
+        this.capacity = Math.max(1, capacity);
+        this.demoteListener = demoteListener;
+    }
+
+    /**
+     * 记录一次读取
+     * @param key 完整缓存key
+     * @return 是否为热点key
+     */
+    public boolean record(String key) {
+        long now = System.currentTimeMillis();
+        long start = windowStart.get();
+        if (now - start >= window) {
+            rotate(start, now);
+            start = windowStart.get();
+        }
+        int h1 = key.hashCode();
+        int h2 = spread(h1);
+        AtomicIntegerArray cur = current;
+        int count = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            int index = i * WIDTH + ((h1 + i * h2) & (WIDTH - 1));
+            count = Math.min(count, cur.incrementAndGet(index));
+        }
+        if (hotKeys.containsKey(key)) {
+            return true;
+        }
+        if (count < threshold) {
+            //当前窗口不足时,计入上一窗口的剩余比例
+            double remaining = 1.0 - Math.min(1.0, (double) (now - start) / window);
+            long estimate = count + (long) (min(previous, h1, h2) * remaining);
+            if (estimate < threshold) {
+                return false;
+            }
+            return promote(key, estimate);
+        }
+        return promote(key, count);
+    }
+
+    /**
+     * 是否为热点key，不计数
+     * @param key 完整缓存key
+     * @return boolean
+     */
+    public boolean isHot(String key) {
+        return hotKeys.containsKey(key);
+    }
+
+    /**
+     * 当前热点key，按估算读取次数倒序
+     * @return key与估算读取次数
+     */
+    public List<Map.Entry<String, Long>> getHotKeys() {
+        List<Map.Entry<String, Long>> list = new ArrayList<Map.Entry<String, Long>>();
+        for (Map.Entry<String, Long> entry : hotKeys.entrySet()) {
+            list.add(new AbstractMap.SimpleImmutableEntry<String, Long>(entry.getKey(), entry.getValue()));
+        }
+        Collections.sort(list, new Comparator<Map.Entry<String, Long>>() {
+            @Override
+            public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+                return Long.compare(o2.getValue(), o1.getValue());
+            }
+        });
+        return list;
+    }
+
+    /**
+     * 记录一次热点副本命中
+     */
+    public void recordHit() {
+        hitCount.increment();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getPromoteCount() {
+        return promoteCount.sum();
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    /*加入热点集合,已满时替换估算值最小的key*/
+    private boolean promote(String key, long estimate) {
+        if (hotKeys.size() >= capacity) {
+            String coldest = null;
+            long min = Long.MAX_VALUE;
+            for (Map.Entry<String, Long> entry : hotKeys.entrySet()) {
+                if (entry.getValue() < min) {
+                    min = entry.getValue();
+                    coldest = entry.getKey();
+                }
+            }
+            if (coldest == null || min >= estimate) {
+                return false;
+            }
+            demote(coldest);
+        }
+        if (hotKeys.put(key, estimate) == null) {
+            promoteCount.increment();
+        }
+        return true;
+    }
+
+    /*窗口轮换,重新估算热点key,低于阈值的移出*/
+    private void rotate(long start, long now) {
+        if (!windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        AtomicIntegerArray expired = previous;
+        //超过两个窗口没有读取时,上一窗口计数同样作废
+        previous = now - start >= window * 2 ? clear(current) : current;
+        current = clear(expired);
+        for (Map.Entry<String, Long> entry : hotKeys.entrySet()) {
+            int h1 = entry.getKey().hashCode();
+            long estimate = min(previous, h1, spread(h1));
+            if (estimate < threshold) {
+                demote(entry.getKey());
+            } else {
+                entry.setValue(estimate);
+            }
+        }
+    }
+
+    private void demote(String key) {
+        if (hotKeys.remove(key) != null && demoteListener != null) {
+            demoteListener.accept(key);
+        }
+    }
+
+    private static AtomicIntegerArray clear(AtomicIntegerArray array) {
+        for (int i = 0; i < array.length(); i++) {
+            array.set(i, 0);
+        }
+        return array;
+    }
+
+    private static int min(AtomicIntegerArray sketch, int h1, int h2) {
+        int count = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            count = Math.min(count, sketch.get(i * WIDTH + ((h1 + i * h2) & (WIDTH - 1))));
+        }
+        return count;
+    }
+
+    /*由hashCode派生第二个哈希,murmur3 fmix32*/
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h | 1;
+    }
+}
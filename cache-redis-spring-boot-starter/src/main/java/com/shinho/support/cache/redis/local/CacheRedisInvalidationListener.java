@@ -0,0 +1,64 @@
+package com.shinho.support.cache.redis.local;
+
+import com.shinho.support.cache.redis.repository.CacheRedisRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * @author 傅为地
+ * 本地一级缓存跨节点失效监听
+ * 任意节点put/evict/clear时通过redis pub/sub广播，其他节点收到后清除本地缓存，下次读取时回源redis
+ * 消息格式：节点编号|缓存名称|操作类型|完整缓存key
+ */
+@Slf4j
+public class CacheRedisInvalidationListener implements MessageListener {
+
+    //当前节点编号,忽略本节点发出的消息
+    public static final String NODE_ID = UUID.randomUUID().toString();
+
+    public static final String OP_PUT = "P";
+
+    public static final String OP_EVICT = "E";
+
+    public static final String OP_CLEAR = "C";
+
+    private static final String SEPARATOR = "|";
+
+    private final CacheManager cacheManager;
+
+    public CacheRedisInvalidationListener(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * 生成广播消息
+     * @param name 缓存名称
+     * @param op 操作类型
+     * @param key 完整缓存key,clear时为缓存key前缀
+     * @return 消息字节
+     */
+    public static byte[] message(String name, String op, String key) {
+        return (NODE_ID + SEPARATOR + name + SEPARATOR + op + SEPARATOR + key).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 4);
+        if (parts.length < 4 || NODE_ID.equals(parts[0])) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(parts[1]);
+        if (cache instanceof CacheRedisRepository) {
+            ((CacheRedisRepository) cache).invalidateLocal(parts[2], parts[3]);
+        } else {
+            log.debug("redis cache invalidation ignored, cache not found:{}", parts[1]);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.shinho.support.cache.redis.local;
+
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author 傅为地
+ * 堆内本地缓存
+ * 按key哈希分段，每段为按访问顺序排列的LinkedHashMap，超出容量时淘汰最久未访问的数据(LRU)
+ * 保留过期数据时，过期数据不再命中但不立即删除，redis不可用时可以通过getStale降级读取
+ */
+public class HeapLocalCacheStore implements LocalCacheStore {
+
+    //分段数量,降低高并发下的锁竞争
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment[] segments;
+
+    //是否保留过期数据,由容量淘汰
+    private final boolean retainExpired;
+
+    /**
+     * @param maxSize 本地缓存最大数量
+     */
+    public HeapLocalCacheStore(long maxSize) {
+        this(maxSize, false);
+    }
+
+    /**
+     * @param maxSize 本地缓存最大数量
+     * @param retainExpired 是否保留过期数据
+     */
+    public HeapLocalCacheStore(long maxSize, boolean retainExpired) {
+        this.retainExpired = retainExpired;
+        int segmentSize = (int) Math.max(1, (maxSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    @Override
+    public ValueWrapper get(String key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            Entry entry = segment.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(System.currentTimeMillis())) {
+                if (!retainExpired) {
+                    segment.remove(key);
+                }
+                return null;
+            }
+            return new SimpleValueWrapper(entry.value);
+        }
+    }
+
+    @Override
+    public ValueWrapper getStale(String key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            Entry entry = segment.get(key);
+            return entry == null ? null : new SimpleValueWrapper(entry.value);
+        }
+    }
+
+    @Override
+    public void put(String key, Object value, long ttlMillis) {
+        long expireAt = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : 0L;
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, new Entry(value, expireAt));
+        }
+    }
+
+    @Override
+    public void evict(String key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /*根据key定位分段*/
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * 单个分段，按访问顺序淘汰
+     */
+    private static class Segment extends LinkedHashMap<String, Entry> {
+
+        private final int maxSize;
+
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    /**
+     * 本地缓存项
+     */
+    private static class Entry {
+
+        private final Object value;
+
+        //过期时刻,0表示不过期
+        private final long expireAt;
+
+        Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired(long now) {
+            return expireAt > 0 && now >= expireAt;
+        }
+    }
+}
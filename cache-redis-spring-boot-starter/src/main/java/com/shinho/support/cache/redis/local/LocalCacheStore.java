@@ -0,0 +1,50 @@
+package com.shinho.support.cache.redis.local;
+
+import org.springframework.cache.Cache.ValueWrapper;
+
+/**
+ * @author 傅为地
+ * 本地一级缓存存储接口
+ * 位于redis二级缓存之前，存放反序列化后的对象，命中时不再访问redis
+ */
+public interface LocalCacheStore {
+
+    /**
+     * 获取本地缓存
+     * @param key 完整缓存key
+     * @return 未命中或已过期返回null
+     */
+    ValueWrapper get(String key);
+
+    /**
+     * 获取本地缓存，包括已过期但仍保留的数据，用于redis不可用时降级
+     * @param key 完整缓存key
+     * @return 未命中返回null
+     */
+    ValueWrapper getStale(String key);
+
+    /**
+     * 写入本地缓存
+     * @param key 完整缓存key
+     * @param value 缓存对象
+     * @param ttlMillis 存活毫秒数,小于等于0时不过期
+     */
+    void put(String key, Object value, long ttlMillis);
+
+    /**
+     * 清除单个本地缓存
+     * @param key 完整缓存key
+     */
+    void evict(String key);
+
+    /**
+     * 清空本地缓存
+     */
+    void clear();
+
+    /**
+     * 当前本地缓存数量
+     * @return size
+     */
+    long size();
+}
@@ -0,0 +1,14 @@
+package com.shinho.support.cache.redis.local;
+
+/**
+ * @author 傅为地
+ * 本地一级缓存存储方式
+ */
+public enum LocalCacheStoreType {
+
+    /** 堆内存放反序列化后的对象，按数量限制*/
+    HEAP,
+
+    /** 直接内存存放序列化后的数据，按字节数限制，读取时反序列化*/
+    OFFHEAP
+}
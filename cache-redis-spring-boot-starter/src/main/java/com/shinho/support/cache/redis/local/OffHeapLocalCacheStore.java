@@ -0,0 +1,338 @@
+package com.shinho.support.cache.redis.local;
+
+import com.shinho.support.cache.redis.serializer.CacheValueCodec;
+import com.shinho.support.cache.redis.serializer.CacheValueEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author 傅为地
+ * 堆外本地缓存
+ * 数据按缓存编解码序列化后存放在直接内存中，读取时反序列化，大量本地缓存不增加堆内存和GC停顿；
+ * 按key哈希分段，每段的直接内存按页(1M)在使用时分配，不超过maxBytes，划分为固定大小的块，数据占用若干个块(不要求连续)；
+ * 空闲块不足且不能再分配时淘汰最久未访问的数据(LRU)，分配直接内存失败时以已分配的容量为上限；key和块序号保存在堆内
+ */
+@Slf4j
+public class OffHeapLocalCacheStore implements LocalCacheStore {
+
+    //分段数量,降低高并发下的锁竞争
+    private static final int SEGMENT_COUNT = 16;
+
+    //块字节数,数据最多浪费一个块
+    private static final int BLOCK_SIZE = 256;
+
+    //单段最大字节数
+    private static final long MAX_SEGMENT_BYTES = (long) Integer.MAX_VALUE / BLOCK_SIZE * BLOCK_SIZE;
+
+    //每页块数,每次分配1M直接内存
+    private static final int PAGE_BLOCKS = 4096;
+
+    private final CacheValueCodec codec;
+
+    private final Segment[] segments;
+
+    //是否保留过期数据,由容量淘汰
+    private final boolean retainExpired;
+
+    /**
+     * @param codec 缓存编解码
+     * @param maxBytes 直接内存最大字节数
+     */
+    public OffHeapLocalCacheStore(CacheValueCodec codec, long maxBytes) {
+        this(codec, maxBytes, false);
+    }
+
+    /**
+     * @param codec 缓存编解码
+     * @param maxBytes 直接内存最大字节数
+     * @param retainExpired 是否保留过期数据
+     */
+    public OffHeapLocalCacheStore(CacheValueCodec codec, long maxBytes, boolean retainExpired) {
+        this.codec = codec;
+        this.retainExpired = retainExpired;
+        long segmentBytes = Math.min(MAX_SEGMENT_BYTES, Math.max(BLOCK_SIZE, maxBytes / SEGMENT_COUNT));
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment((int) (segmentBytes / BLOCK_SIZE));
+        }
+    }
+
+    @Override
+    public ValueWrapper get(String key) {
+        Segment segment = segmentFor(key);
+        byte[] bytes;
+        synchronized (segment) {
+            Slot slot = segment.slots.get(key);
+            if (slot == null) {
+                return null;
+            }
+            if (slot.isExpired(System.currentTimeMillis())) {
+                if (!retainExpired) {
+                    segment.remove(key);
+                }
+                return null;
+            }
+            bytes = segment.read(slot);
+        }
+        return decode(bytes);
+    }
+
+    @Override
+    public ValueWrapper getStale(String key) {
+        Segment segment = segmentFor(key);
+        byte[] bytes;
+        synchronized (segment) {
+            Slot slot = segment.slots.get(key);
+            if (slot == null) {
+                return null;
+            }
+            bytes = segment.read(slot);
+        }
+        return decode(bytes);
+    }
+
+    @Override
+    public void put(String key, Object value, long ttlMillis) {
+        byte[] bytes;
+        try {
+            bytes = value == null ? codec.encodeNull() : codec.encode(value);
+        } catch (RuntimeException e) {
+            log.debug("redis cache off-heap serialize error key:{},error:{}", key, e.getMessage());
+            evict(key);
+            return;
+        }
+        long expireAt = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : 0L;
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+            segment.write(key, bytes, expireAt);
+        }
+    }
+
+    @Override
+    public void evict(String key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.slots.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 已使用的直接内存字节数(按块计算)
+     * @return bytes
+     */
+    public long getUsedBytes() {
+        long used = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                used += (long) (segment.allocatedBlocks - segment.freeCount) * BLOCK_SIZE;
+            }
+        }
+        return used;
+    }
+
+    /**
+     * 已分配的直接内存字节数
+     * @return bytes
+     */
+    public long getAllocatedBytes() {
+        long allocated = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                allocated += (long) segment.allocatedBlocks * BLOCK_SIZE;
+            }
+        }
+        return allocated;
+    }
+
+    /*反序列化,失败时按未命中处理*/
+    private ValueWrapper decode(byte[] bytes) {
+        try {
+            CacheValueEntry entry = codec.decodeEntry(bytes);
+            return new SimpleValueWrapper(entry.isNullValue() ? null : entry.getValue());
+        } catch (RuntimeException e) {
+            log.debug("redis cache off-heap deserialize error:{}", e.getMessage());
+            return null;
+        }
+    }
+
+    /*根据key定位分段*/
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * 单个分段，直接内存按页分配、按块使用，按访问顺序淘汰
+     */
+    private static class Segment {
+
+        //直接内存页,使用时分配
+        private final ByteBuffer[] pages;
+
+        //最多块数
+        private final int blockCount;
+
+        //可以分配到的块数,分配直接内存失败时减少为已分配块数
+        private int limitBlocks;
+
+        //已分配块数
+        private int allocatedBlocks;
+
+        //空闲块序号栈
+        private int[] freeBlocks = new int[0];
+
+        private int freeCount;
+
+        private final LinkedHashMap<String, Slot> slots = new LinkedHashMap<String, Slot>(16, 0.75f, true);
+
+        Segment(int blockCount) {
+            this.blockCount = blockCount;
+            this.limitBlocks = blockCount;
+            this.pages = new ByteBuffer[(blockCount + PAGE_BLOCKS - 1) / PAGE_BLOCKS];
+        }
+
+        /*写入数据,空闲块不足时先分配新页,不能分配时淘汰最久未访问的数据,超过分段容量时不写入*/
+        void write(String key, byte[] bytes, long expireAt) {
+            int needed = Math.max(1, (bytes.length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+            if (needed > blockCount) {
+                return;
+            }
+            Iterator<Map.Entry<String, Slot>> it = slots.entrySet().iterator();
+            while (freeCount < needed) {
+                if (grow()) {
+                    continue;
+                }
+                if (!it.hasNext()) {
+                    return;
+                }
+                Slot eldest = it.next().getValue();
+                it.remove();
+                release(eldest);
+            }
+            int[] blocks = new int[needed];
+            for (int i = 0; i < needed; i++) {
+                blocks[i] = freeBlocks[--freeCount];
+                int offset = i * BLOCK_SIZE;
+                ByteBuffer page = position(blocks[i]);
+                page.put(bytes, offset, Math.min(BLOCK_SIZE, bytes.length - offset));
+            }
+            slots.put(key, new Slot(blocks, bytes.length, expireAt));
+        }
+
+        byte[] read(Slot slot) {
+            byte[] bytes = new byte[slot.length];
+            for (int i = 0; i < slot.blocks.length; i++) {
+                int offset = i * BLOCK_SIZE;
+                ByteBuffer page = position(slot.blocks[i]);
+                page.get(bytes, offset, Math.min(BLOCK_SIZE, slot.length - offset));
+            }
+            return bytes;
+        }
+
+        void remove(String key) {
+            Slot slot = slots.remove(key);
+            if (slot != null) {
+                release(slot);
+            }
+        }
+
+        /*已分配的页保留,全部块放回空闲栈*/
+        void clear() {
+            slots.clear();
+            for (int i = 0; i < allocatedBlocks; i++) {
+                freeBlocks[i] = i;
+            }
+            freeCount = allocatedBlocks;
+        }
+
+        /*分配一页直接内存,达到上限或者分配失败时返回false*/
+        private boolean grow() {
+            if (allocatedBlocks >= limitBlocks) {
+                return false;
+            }
+            int count = Math.min(PAGE_BLOCKS, limitBlocks - allocatedBlocks);
+            ByteBuffer page;
+            try {
+                page = ByteBuffer.allocateDirect(count * BLOCK_SIZE);
+            } catch (OutOfMemoryError e) {
+                log.warn("redis cache off-heap allocate direct memory error, capacity limited to {} bytes:{}", (long) allocatedBlocks * BLOCK_SIZE, e.getMessage());
+                limitBlocks = allocatedBlocks;
+                return false;
+            }
+            pages[allocatedBlocks / PAGE_BLOCKS] = page;
+            if (freeBlocks.length < allocatedBlocks + count) {
+                freeBlocks = Arrays.copyOf(freeBlocks, allocatedBlocks + count);
+            }
+            for (int i = 0; i < count; i++) {
+                freeBlocks[freeCount++] = allocatedBlocks + i;
+            }
+            allocatedBlocks += count;
+            return true;
+        }
+
+        /*定位块所在页并移动到块的起始位置*/
+        private ByteBuffer position(int block) {
+            ByteBuffer page = pages[block / PAGE_BLOCKS];
+            page.position((block % PAGE_BLOCKS) * BLOCK_SIZE);
+            return page;
+        }
+
+        private void release(Slot slot) {
+            for (int block : slot.blocks) {
+                freeBlocks[freeCount++] = block;
+            }
+        }
+    }
+
+    /**
+     * 本地缓存项占用的块
+     */
+    private static class Slot {
+
+        private final int[] blocks;
+
+        private final int length;
+
+        //过期时刻,0表示不过期
+        private final long expireAt;
+
+        Slot(int[] blocks, int length, long expireAt) {
+            this.blocks = blocks;
+            this.length = length;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired(long now) {
+            return expireAt > 0 && now >= expireAt;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.shinho.support.cache.redis.pool;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * @author 傅为地
+ * 命名redis连接池
+ */
+public class CacheRedisPool {
+
+    private final String name;
+
+    private final RedisTemplate template;
+
+    private final RedisConnectionFactory factory;
+
+    /**
+     * @param name 连接池名称
+     * @param template 访问模板
+     * @param factory 连接工厂
+     */
+    public CacheRedisPool(String name, RedisTemplate template, RedisConnectionFactory factory) {
+        this.name = name;
+        this.template = template;
+        this.factory = factory;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public RedisTemplate getTemplate() {
+        return template;
+    }
+
+    public RedisConnectionFactory getFactory() {
+        return factory;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,139 @@
+package com.shinho.support.cache.redis.pool;
+
+import com.shinho.support.cache.redis.properties.CacheRedisProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.util.StringUtils;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.util.*;
+
+/**
+ * @author 傅为地
+ * 命名redis连接池，单项缓存固定使用其中一个或者按key分片到多个
+ * default为spring.redis的连接，其他连接池按配置创建，停止时关闭
+ */
+@Slf4j
+public class CacheRedisPools implements DisposableBean {
+
+    //spring.redis连接池名称
+    public static final String DEFAULT = "default";
+
+    private final Map<String, CacheRedisPool> pools = new LinkedHashMap<String, CacheRedisPool>();
+
+    //命名连接池的失效消息订阅容器
+    private final List<RedisMessageListenerContainer> containers = new ArrayList<RedisMessageListenerContainer>();
+
+    /**
+     * @param template spring.redis访问模板
+     * @param factory spring.redis连接工厂
+     * @param configs 命名连接池配置，可以为空
+     */
+    public CacheRedisPools(RedisTemplate template, RedisConnectionFactory factory, List<CacheRedisProperties.Pool> configs) {
+        pools.put(DEFAULT, new CacheRedisPool(DEFAULT, template, factory));
+        if (configs == null) {
+            return;
+        }
+        for (CacheRedisProperties.Pool config : configs) {
+            if (config == null || StringUtils.isEmpty(config.getName()) || pools.containsKey(config.getName())) {
+                throw new IllegalArgumentException("redis cache pool name empty or duplicated:" + (config == null ? null : config.getName()));
+            }
+            pools.put(config.getName(), create(config));
+            log.info("redis cache pool {} created, {}:{}/{}", config.getName(), config.getHost(), config.getPort(), config.getDatabase());
+        }
+    }
+
+    /**
+     * 按名称获取连接池
+     * @param name 连接池名称
+     * @return pool
+     */
+    public CacheRedisPool get(String name) {
+        CacheRedisPool pool = pools.get(name);
+        if (pool == null) {
+            throw new IllegalArgumentException("redis cache pool not found:" + name);
+        }
+        return pool;
+    }
+
+    /**
+     * 创建分片
+     * @param names 连接池名称，第一个为主连接池
+     * @param virtualNodes 每个连接池的虚拟节点数量
+     * @return shards
+     */
+    public CacheRedisShards shards(List<String> names, int virtualNodes) {
+        List<CacheRedisPool> list = new ArrayList<CacheRedisPool>();
+        for (String name : new LinkedHashSet<String>(names)) {
+            list.add(get(name));
+        }
+        return new CacheRedisShards(list, virtualNodes);
+    }
+
+    /**
+     * 在命名连接池上订阅失效消息，default连接池由cacheRedisListenerContainer订阅
+     * 缓存在所在连接池上广播，各连接池都需要订阅
+     * @param listener 失效监听
+     * @param topic 广播通道
+     */
+    public synchronized void subscribe(MessageListener listener, Topic topic) {
+        for (CacheRedisPool pool : pools.values()) {
+            if (DEFAULT.equals(pool.getName())) {
+                continue;
+            }
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(pool.getFactory());
+            container.addMessageListener(listener, topic);
+            container.afterPropertiesSet();
+            container.start();
+            containers.add(container);
+        }
+    }
+
+    /**
+     * 全部连接池
+     * @return pools
+     */
+    public Collection<CacheRedisPool> getPools() {
+        return Collections.unmodifiableCollection(pools.values());
+    }
+
+    @Override
+    public synchronized void destroy() throws Exception {
+        for (RedisMessageListenerContainer container : containers) {
+            container.destroy();
+        }
+        containers.clear();
+        for (CacheRedisPool pool : pools.values()) {
+            if (!DEFAULT.equals(pool.getName()) && pool.getFactory() instanceof DisposableBean) {
+                ((DisposableBean) pool.getFactory()).destroy();
+            }
+        }
+    }
+
+    /*按配置创建jedis连接池*/
+    private static CacheRedisPool create(CacheRedisProperties.Pool config) {
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(config.getMaxActive());
+        poolConfig.setMaxIdle(config.getMaxIdle());
+        poolConfig.setMinIdle(config.getMinIdle());
+        poolConfig.setMaxWaitMillis(config.getMaxWait());
+        JedisConnectionFactory factory = new JedisConnectionFactory(poolConfig);
+        factory.setHostName(config.getHost());
+        factory.setPort(config.getPort());
+        factory.setPassword(config.getPassword());
+        factory.setDatabase(config.getDatabase());
+        factory.setTimeout(config.getTimeout());
+        factory.afterPropertiesSet();
+        RedisTemplate<Object, Object> template = new RedisTemplate<Object, Object>();
+        template.setConnectionFactory(factory);
+        template.afterPropertiesSet();
+        return new CacheRedisPool(config.getName(), template, factory);
+    }
+}
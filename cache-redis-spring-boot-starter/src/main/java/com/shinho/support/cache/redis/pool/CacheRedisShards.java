@@ -0,0 +1,71 @@
+package com.shinho.support.cache.redis.pool;
+
+import com.shinho.support.cache.redis.generator.Murmur3KeyHasher;
+
+import java.util.*;
+
+/**
+ * @author 傅为地
+ * 单项缓存分片，key按一致性哈希分布到多个连接池
+ * 每个连接池按名称生成多个虚拟节点放入哈希环，key落在顺时针方向的第一个虚拟节点上
+ * 虚拟节点只与连接池名称有关，各应用节点的分布一致；增减连接池时只有约1/n的key改变所在连接池
+ */
+public class CacheRedisShards {
+
+    private final List<CacheRedisPool> pools;
+
+    //哈希环,虚拟节点哈希与连接池
+    private final TreeMap<Long, CacheRedisPool> ring = new TreeMap<Long, CacheRedisPool>();
+
+    /**
+     * @param pools 连接池，第一个为主连接池
+     * @param virtualNodes 每个连接池的虚拟节点数量
+     */
+    public CacheRedisShards(List<CacheRedisPool> pools, int virtualNodes) {
+        if (pools == null || pools.isEmpty()) {
+            throw new IllegalArgumentException("redis cache shards pools is empty");
+        }
+        this.pools = Collections.unmodifiableList(new ArrayList<CacheRedisPool>(pools));
+        for (CacheRedisPool pool : pools) {
+            for (int i = 0; i < Math.max(1, virtualNodes); i++) {
+                long hash = hash(pool.getName() + "#" + i);
+                //哈希冲突时保留先加入的虚拟节点
+                if (!ring.containsKey(hash)) {
+                    ring.put(hash, pool);
+                }
+            }
+        }
+    }
+
+    /**
+     * key所在的连接池
+     * @param key 完整缓存key
+     * @return pool
+     */
+    public CacheRedisPool get(String key) {
+        Map.Entry<Long, CacheRedisPool> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * 主连接池，存放缓存代数、布隆过滤器和失效广播等不属于单个key的数据
+     * @return pool
+     */
+    public CacheRedisPool getPrimary() {
+        return pools.get(0);
+    }
+
+    /**
+     * 全部连接池
+     * @return pools
+     */
+    public List<CacheRedisPool> getPools() {
+        return pools;
+    }
+
+    private static long hash(String key) {
+        Murmur3KeyHasher hasher = new Murmur3KeyHasher().reset(0L);
+        hasher.putChars(key);
+        return hasher.asLong();
+    }
+}
@@ -0,0 +1,43 @@
+package com.shinho.support.cache.redis.properties;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 缓存过期时间抖动和平滑配置，可全局配置，单项缓存配置时覆盖全局配置
+ * @author 傅为地
+ */
+@Data
+@NoArgsConstructor
+public class CacheRedisExpiry implements Serializable {
+
+    /**
+     * 抖动百分比，存活时间减去[0,存活时间*百分比]内的随机秒数
+     */
+    private int jitterPercent=0;
+
+    /**
+     * 抖动固定秒数，与百分比同时配置时取较大者
+     */
+    private long jitterRange=0;
+
+    /**
+     * 本节点单项缓存每秒最多过期数量，超出时提前到前面未满的秒，0表示不平滑
+     */
+    private int maxPerSecond=0;
+
+    /**
+     * 过期平滑最多提前秒数
+     */
+    private long window=60;
+
+    /**
+     * 是否需要调整过期时间
+     * @return boolean
+     */
+    public boolean isEnabled(){
+        return jitterPercent>0||jitterRange>0||maxPerSecond>0;
+    }
+}
@@ -31,9 +31,275 @@ public class CacheRedisProperties {
 	 */
 	private String prefix="cache_";
 
+	/**
+	 *本地一级缓存跨节点失效广播通道
+	 */
+	@Builder.Default
+	private String channel="cache_redis_channel";
+
 	/**
 	 *全部缓存集合，每项缓存不为空或null,且不重复
 	 */
     private List<CacheRedisSingleItem> items;
 
+	/**
+	 *缓存后台任务线程池
+	 */
+	@Builder.Default
+	private Task task=new Task();
+
+	/**
+	 *缓存提前刷新线程池，队列满时放弃刷新
+	 */
+	@Builder.Default
+	private Task refresh=new Task(2,4,200,"cache-redis-refresh-",60);
+
+	/**
+	 *缓存异步访问线程池，队列满时拒绝，返回异常完成的future
+	 */
+	@Builder.Default
+	private Task async=new Task(4,16,10000,"cache-redis-async-",60);
+
+	/**
+	 *redis访问熔断配置，开启后redis异常不再抛出，按未命中处理或返回本地旧数据
+	 */
+	@Builder.Default
+	private Breaker breaker=new Breaker();
+
+	/**
+	 *全局缓存过期时间抖动和平滑配置
+	 */
+	@Builder.Default
+	private CacheRedisExpiry expiry=new CacheRedisExpiry();
+
+	/**
+	 *缓存启动预热配置
+	 */
+	@Builder.Default
+	private WarmUp warmUp=new WarmUp();
+
+	/**
+	 *缓存读取副本配置，单项缓存配置read-from后从副本读取
+	 */
+	@Builder.Default
+	private Replica replica=new Replica();
+
+	/**
+	 *命名redis连接池，单项缓存通过pool或shard使用，default为spring.redis
+	 */
+	private List<Pool> pools;
+
+	/**
+	 *缓存后台任务线程池配置
+	 */
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Task{
+
+		/**
+		 *核心线程数
+		 */
+		private int core=2;
+
+		/**
+		 *最大线程数
+		 */
+		private int max=8;
+
+		/**
+		 *缓冲队列数
+		 */
+		private int queue=1000;
+
+		/**
+		 *线程名称前缀
+		 */
+		private String prefix="cache-redis-task-";
+
+		/**
+		 *允许的空闲时间(秒)
+		 */
+		private int keep=60;
+	}
+
+	/**
+	 *redis访问熔断配置
+	 */
+	@Data
+	public static class Breaker{
+
+		/**
+		 *是否开启熔断
+		 */
+		private boolean enable=false;
+
+		/**
+		 *统计窗口(毫秒)
+		 */
+		private long window=10000;
+
+		/**
+		 *窗口内最少调用次数，不足时不打开
+		 */
+		private int minimumCalls=20;
+
+		/**
+		 *失败率阈值(百分比)
+		 */
+		private int failureRate=50;
+
+		/**
+		 *慢调用时间(毫秒)
+		 */
+		private long slowCall=500;
+
+		/**
+		 *慢调用率阈值(百分比)
+		 */
+		private int slowCallRate=80;
+
+		/**
+		 *打开持续时间(毫秒)，之后半开探测
+		 */
+		private long open=5000;
+
+		/**
+		 *半开状态探测次数，全部成功后关闭
+		 */
+		private int halfOpenCalls=3;
+	}
+
+	/**
+	 *缓存启动预热配置
+	 */
+	@Data
+	public static class WarmUp{
+
+		/**
+		 *是否开启预热
+		 */
+		private boolean enable=false;
+
+		/**
+		 *并行加载线程数
+		 */
+		private int concurrency=4;
+
+		/**
+		 *每秒最多加载key数量，小于等于0时不限制
+		 */
+		private int rate=0;
+
+		/**
+		 *每批加载key数量
+		 */
+		private int batch=100;
+
+		/**
+		 *是否等待预热完成后再完成启动
+		 */
+		private boolean wait=false;
+
+		/**
+		 *等待预热完成的最长时间(毫秒)，超时后继续启动，预热在后台继续
+		 */
+		private long waitTimeout=60000;
+
+		/**
+		 *是否记录热点key快照，启动时恢复到redis，需要单项缓存开启热点key识别
+		 */
+		private boolean snapshot=false;
+
+		/**
+		 *热点key快照目录
+		 */
+		private String snapshotDir=System.getProperty("java.io.tmpdir")+"/cache-redis-snapshot";
+
+		/**
+		 *热点key快照记录间隔(毫秒)，停止时也会记录
+		 */
+		private long snapshotInterval=300000;
+	}
+
+	/**
+	 *缓存读取副本配置
+	 *副本使用与主节点相同的密码、数据库、超时和连接池配置
+	 */
+	@Data
+	public static class Replica{
+
+		/**
+		 *是否开启副本读取
+		 */
+		private boolean enable=false;
+
+		/**
+		 *副本节点，格式host:port
+		 */
+		private List<String> nodes;
+
+		/**
+		 *副本访问异常后不再读取的时间(毫秒)，期间回退主节点
+		 */
+		private long downTime=5000;
+	}
+
+	/**
+	 *命名redis连接池配置
+	 */
+	@Data
+	public static class Pool{
+
+		/**
+		 *连接池名称
+		 */
+		private String name;
+
+		/**
+		 *redis地址
+		 */
+		private String host="localhost";
+
+		/**
+		 *redis端口
+		 */
+		private int port=6379;
+
+		/**
+		 *redis密码
+		 */
+		private String password;
+
+		/**
+		 *redis数据库
+		 */
+		private int database=0;
+
+		/**
+		 *连接超时(毫秒)
+		 */
+		private int timeout=2000;
+
+		/**
+		 *最大连接数
+		 */
+		private int maxActive=8;
+
+		/**
+		 *最大空闲连接数
+		 */
+		private int maxIdle=8;
+
+		/**
+		 *最小空闲连接数
+		 */
+		private int minIdle=0;
+
+		/**
+		 *获取连接最长等待时间(毫秒)，-1表示一直等待
+		 */
+		private long maxWait=-1;
+	}
+
 }
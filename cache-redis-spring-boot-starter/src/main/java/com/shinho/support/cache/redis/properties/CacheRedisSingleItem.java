@@ -1,8 +1,14 @@
 package com.shinho.support.cache.redis.properties;
 
+import com.shinho.support.cache.redis.local.LocalCacheStoreType;
+import com.shinho.support.cache.redis.replica.CacheReadFrom;
+import com.shinho.support.cache.redis.repository.CacheClearMode;
+import com.shinho.support.cache.redis.repository.CacheOversizeMode;
+import com.shinho.support.cache.redis.repository.CacheStorageLayout;
 import lombok.*;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * 单项缓存配置信息
@@ -36,4 +42,377 @@ public class CacheRedisSingleItem implements Serializable {
      */
     private  String prefix;
 
+    /**
+     * 单项缓存清空方式：keys(默认)、generation、scan
+     */
+    private  CacheClearMode clearMode;
+
+    /**
+     * 单项缓存存储结构：string(默认)、hash(按key分桶存入小hash，适合大量小数据)
+     */
+    private  CacheStorageLayout layout;
+
+    /**
+     * hash存储结构的分桶数量，建议每桶字段数不超过redis的hash-max-ziplist-entries(默认128)
+     */
+    @Builder.Default
+    private  int hashBuckets=1024;
+
+    /**
+     * 单项缓存序列化方式：jdk(默认)、json、kryo(需引入kryo依赖)或自定义序列化名称
+     */
+    private  String serializer;
+
+    /**
+     * kryo序列化预注册的类型全名，所有节点顺序必须一致
+     */
+    private  List<String> serializerClasses;
+
+    /**
+     * 单项缓存压缩方式：none(默认)、lz4(需引入lz4-java依赖)、deflate
+     */
+    private  String compression;
+
+    /**
+     * 序列化后达到该字节数才压缩，默认4KB
+     */
+    @Builder.Default
+    private  int compressionThreshold=4096;
+
+    /**
+     * 单项缓存大小限制配置，序列化后超过最大字节数时不写入或分块写入，不配置时不限制
+     */
+    private  Oversize oversize;
+
+    /**
+     * 单项缓存本地一级缓存配置，不配置时不开启
+     */
+    private  Local local;
+
+    /**
+     * 单项缓存跨节点加载租约配置，仅对@Cacheable(sync=true)生效，不配置时不开启
+     */
+    private  Lease lease;
+
+    /**
+     * 单项缓存提前刷新配置，仅对@Cacheable(sync=true)生效，不配置时不开启
+     */
+    private  Refresh refresh;
+
+    /**
+     * 单项缓存过期保留配置，软过期后在redis中继续保留，后台刷新期间返回旧值，不配置时不开启
+     */
+    private  Stale stale;
+
+    /**
+     * 空值缓存存活时间(秒)，方法返回null时写入空值标记，0表示不缓存空值
+     */
+    private  long nullTimeout;
+
+    /**
+     * 单项缓存布隆过滤器配置，一定不存在的key直接返回null，不配置时不开启
+     */
+    private  Bloom bloom;
+
+    /**
+     * 单项缓存过期时间抖动和平滑配置，不配置时使用全局配置
+     */
+    private  CacheRedisExpiry expiry;
+
+    /**
+     * 单项缓存热点key识别配置，热点key在本节点保留短时副本，不配置时不开启
+     */
+    private  HotKey hotKey;
+
+    /**
+     * 单项缓存启动预热配置，需要同时开启全局预热
+     */
+    private  WarmUp warmUp;
+
+    /**
+     * 单项缓存写后缓存配置，put/evict进入本节点队列后由后台批量写入redis，不配置时同步写入
+     */
+    private  WriteBehind writeBehind;
+
+    /**
+     * 读取节点选择方式：master(默认,只读主节点)、replica-preferred(优先副本)、nearest(耗时最短的节点)，需要配置全局副本节点
+     */
+    private  CacheReadFrom readFrom;
+
+    /**
+     * 使用的命名连接池，不配置时使用spring.redis，与shard同时配置时以shard为准
+     */
+    private  String pool;
+
+    /**
+     * 单项缓存分片配置，key按一致性哈希分布到多个命名连接池
+     */
+    private  Shard shard;
+
+    /**
+     * 本地一级缓存配置
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Local implements Serializable {
+
+        /**
+         * 是否开启本地一级缓存
+         */
+        private boolean enable=false;
+
+        /**
+         * 本地缓存存储方式：heap(默认,堆内对象)、offheap(直接内存存放序列化数据)
+         */
+        private LocalCacheStoreType store=LocalCacheStoreType.HEAP;
+
+        /**
+         * 本地缓存最大数量，仅heap方式生效
+         */
+        private long size=10000;
+
+        /**
+         * 本地缓存最大直接内存字节数，仅offheap方式生效，使用时按页分配，各缓存之和不应超过-XX:MaxDirectMemorySize
+         */
+        private long maxBytes=268435456L;
+
+        /**
+         * 本地缓存存活时间(秒)，不超过单项缓存存活时间
+         */
+        private long timeout=60;
+    }
+
+    /**
+     * 跨节点加载租约配置
+     * 缓存未命中时，只有获得租约的节点执行加载，其余节点等待其写入缓存
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Lease implements Serializable {
+
+        /**
+         * 是否开启加载租约
+         */
+        private boolean enable=false;
+
+        /**
+         * 租约时长(毫秒)，应略大于加载方法的执行时间
+         */
+        private long timeout=3000;
+
+        /**
+         * 未获得租约时最长等待时间(毫秒)，超时后自行加载
+         */
+        private long wait=500;
+    }
+
+    /**
+     * 提前刷新配置
+     * 命中临近过期的数据时，后台线程重新加载并写入缓存，调用方直接返回当前值
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Refresh implements Serializable {
+
+        /**
+         * 是否开启提前刷新，需要单项缓存存活时间大于0
+         */
+        private boolean enable=false;
+
+        /**
+         * 剩余存活时间低于该比例时刷新，如0.2表示最后20%的存活时间内刷新
+         */
+        private double ratio=0.2;
+
+        /**
+         * XFetch概率提前刷新系数，按加载耗时随机提前刷新，越大越早，0表示不开启
+         */
+        private double beta=1.0;
+    }
+
+    /**
+     * 过期保留配置
+     * 单项缓存存活时间为软过期时间，redis实际存活时间为软过期时间+保留时间；
+     * 软过期的数据在@Cacheable(sync=true)时返回旧值并后台刷新，其余读取按未命中处理
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Stale implements Serializable {
+
+        /**
+         * 是否开启过期保留，需要单项缓存存活时间大于0
+         */
+        private boolean enable=false;
+
+        /**
+         * 软过期后继续保留的时间(秒)
+         */
+        private long timeout=300;
+    }
+
+    /**
+     * 布隆过滤器配置
+     * 记录存在的缓存key，本地位数组判断，redis位图在节点间共享；
+     * 需要应用写入全部存在的key并调用markReady后才开始拒绝
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Bloom implements Serializable {
+
+        /**
+         * 是否开启布隆过滤器
+         */
+        private boolean enable=false;
+
+        /**
+         * 预计key数量
+         */
+        private long expectedInsertions=1000000;
+
+        /**
+         * 误判率
+         */
+        private double fpp=0.01;
+
+        /**
+         * 从redis位图合并其他节点写入的间隔(毫秒)
+         */
+        private long sync=30000;
+    }
+
+    /**
+     * 热点key识别配置
+     * 本地一级缓存未命中的读取按窗口统计次数，超过阈值的key保留本地副本，低于阈值后移除
+     */
+    @Data
+    @NoArgsConstructor
+    public static class HotKey implements Serializable {
+
+        /**
+         * 是否开启热点key识别
+         */
+        private boolean enable=false;
+
+        /**
+         * 每个窗口内读取次数达到该值时判定为热点
+         */
+        private int threshold=1000;
+
+        /**
+         * 统计窗口(毫秒)
+         */
+        private long window=1000;
+
+        /**
+         * 热点key最大数量
+         */
+        private int capacity=100;
+
+        /**
+         * 热点key本地副本存活时间(毫秒)
+         */
+        private long timeout=3000;
+    }
+
+    /**
+     * 缓存大小限制配置
+     * 超大数据写入和读取会长时间占用redis单线程，影响其他请求
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Oversize implements Serializable {
+
+        /**
+         * 序列化(压缩)后最大字节数，小于等于0时不限制
+         */
+        private long maxSize=0;
+
+        /**
+         * 超过最大字节数时的处理方式：skip(默认,不写入并删除已有数据)、chunk(分块写入)
+         */
+        private CacheOversizeMode mode=CacheOversizeMode.SKIP;
+
+        /**
+         * 分块写入时每块字节数
+         */
+        private int chunkSize=262144;
+    }
+
+    /**
+     * 启动预热配置
+     * key可以直接配置或通过SpEL表达式获取，数据通过SpEL表达式批量加载，变量#keys为本批key
+     */
+    @Data
+    @NoArgsConstructor
+    public static class WarmUp implements Serializable {
+
+        /**
+         * 需要预热的key
+         */
+        private List<String> keys;
+
+        /**
+         * 获取预热key的SpEL表达式，如@itemService.findHotIds()，结果为集合或数组
+         */
+        private String keysExpression;
+
+        /**
+         * 批量加载数据的SpEL表达式，如@itemService.findByIds(#keys)，结果为key与缓存对象的Map或者与#keys顺序一致的List
+         */
+        private String loader;
+    }
+
+    /**
+     * 写后缓存配置
+     * 同一key未写入的数据合并，按数量或时间分批通过管道写入；进程异常退出时队列中的数据丢失，只适合允许少量丢失的数据
+     */
+    @Data
+    @NoArgsConstructor
+    public static class WriteBehind implements Serializable {
+
+        /**
+         * 是否开启写后缓存
+         */
+        private boolean enable=false;
+
+        /**
+         * 队列最大key数量，已满时新key同步写入
+         */
+        private int capacity=100000;
+
+        /**
+         * 每批最多写入key数量
+         */
+        private int batch=500;
+
+        /**
+         * 数据进入队列后最长等待时间(毫秒)
+         */
+        private long interval=100;
+
+        /**
+         * 停止时等待队列写完的最长时间(毫秒)
+         */
+        private long shutdownTimeout=10000;
+    }
+
+    /**
+     * 单项缓存分片配置
+     * key按一致性哈希分布到多个连接池，增减连接池时只有约1/n的key迁移(迁移的key按未命中重新加载)
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Shard implements Serializable {
+
+        /**
+         * 分片使用的连接池名称，default表示spring.redis，第一个连接池同时存放缓存代数和布隆过滤器
+         */
+        private List<String> pools;
+
+        /**
+         * 每个连接池的虚拟节点数量，越多分布越均匀
+         */
+        private int virtualNodes=160;
+    }
+
 }
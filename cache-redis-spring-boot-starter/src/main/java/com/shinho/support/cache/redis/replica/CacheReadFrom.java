@@ -0,0 +1,23 @@
+package com.shinho.support.cache.redis.replica;
+
+/**
+ * @author 傅为地
+ * 缓存读取节点选择方式，写入和删除始终访问主节点
+ */
+public enum CacheReadFrom {
+
+    /**
+     * 只从主节点读取，不能容忍复制延迟的缓存使用
+     */
+    MASTER,
+
+    /**
+     * 优先从副本读取，多个副本轮询，副本全部不可用时回退主节点
+     */
+    REPLICA_PREFERRED,
+
+    /**
+     * 从主节点和副本中最近一段时间读取耗时最短的节点读取
+     */
+    NEAREST
+}
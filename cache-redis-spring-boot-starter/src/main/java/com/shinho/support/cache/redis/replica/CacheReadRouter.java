@@ -0,0 +1,159 @@
+package com.shinho.support.cache.redis.replica;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author 傅为地
+ * 缓存读取路由，按读取方式在主节点和副本之间选择读取节点
+ * 副本访问异常时在downTime毫秒内不再选择，由调用方回退主节点；读取耗时按指数加权平均记录，用于选择最近节点
+ */
+@Slf4j
+public class CacheReadRouter implements DisposableBean {
+
+    //耗时加权平均中新样本的权重倒数
+    private static final int LATENCY_WEIGHT = 8;
+
+    private final Node master;
+
+    private final List<Node> replicas;
+
+    //副本异常后不再选择的毫秒数
+    private final long downTime;
+
+    private final AtomicInteger counter = new AtomicInteger(0);
+
+    /**
+     * @param replicas 副本节点
+     * @param downTime 副本异常后不再选择的毫秒数
+     */
+    public CacheReadRouter(List<Node> replicas, long downTime) {
+        this.master = new Node("master", null, null);
+        this.replicas = replicas == null ? Collections.<Node>emptyList() : new ArrayList<Node>(replicas);
+        this.downTime = downTime;
+    }
+
+    /**
+     * 选择读取节点
+     * @param readFrom 读取方式
+     * @return 没有可用副本时返回主节点
+     */
+    public Node select(CacheReadFrom readFrom) {
+        if (readFrom == null || CacheReadFrom.MASTER == readFrom || replicas.isEmpty()) {
+            return master;
+        }
+        long now = System.currentTimeMillis();
+        if (CacheReadFrom.NEAREST == readFrom) {
+            Node nearest = master;
+            for (Node replica : replicas) {
+                if (replica.isAvailable(now) && replica.getLatency() < nearest.getLatency()) {
+                    nearest = replica;
+                }
+            }
+            return nearest;
+        }
+        int start = counter.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            Node replica = replicas.get((start + i) % replicas.size());
+            if (replica.isAvailable(now)) {
+                return replica;
+            }
+        }
+        return master;
+    }
+
+    /**
+     * 记录副本访问异常，downTime毫秒内不再选择
+     * @param node 副本节点
+     * @param e 异常
+     */
+    public void markDown(Node node, RuntimeException e) {
+        if (node != master) {
+            node.downUntil.set(System.currentTimeMillis() + downTime);
+            log.warn("redis cache replica {} read error, fallback to master for {}ms, error:{}", node.getName(), downTime, e.toString());
+        }
+    }
+
+    public Node getMaster() {
+        return master;
+    }
+
+    public List<Node> getReplicas() {
+        return Collections.unmodifiableList(replicas);
+    }
+
+    /**
+     * 关闭副本连接
+     */
+    @Override
+    public void destroy() throws Exception {
+        for (Node replica : replicas) {
+            if (replica.factory instanceof DisposableBean) {
+                ((DisposableBean) replica.factory).destroy();
+            }
+        }
+    }
+
+    /**
+     * 读取节点
+     */
+    public static class Node {
+
+        private final String name;
+
+        private final RedisTemplate template;
+
+        //副本连接工厂,停止时关闭,主节点为null
+        private final RedisConnectionFactory factory;
+
+        //读取耗时加权平均(纳秒),没有样本时为0优先选择
+        private final AtomicLong latency = new AtomicLong(0L);
+
+        //异常后不可用的截止时刻
+        private final AtomicLong downUntil = new AtomicLong(0L);
+
+        /**
+         * @param name 节点名称，用于日志
+         * @param template 节点访问模板，主节点为null，通过缓存自身的redisTemplate访问
+         * @param factory 节点连接工厂，停止时关闭
+         */
+        public Node(String name, RedisTemplate template, RedisConnectionFactory factory) {
+            this.name = name;
+            this.template = template;
+            this.factory = factory;
+        }
+
+        /**
+         * 记录一次读取耗时
+         * @param nanos 纳秒
+         */
+        public void recordLatency(long nanos) {
+            long current = latency.get();
+            latency.set(current == 0 ? nanos : current + (nanos - current) / LATENCY_WEIGHT);
+        }
+
+        boolean isAvailable(long now) {
+            return downUntil.get() <= now;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public RedisTemplate getTemplate() {
+            return template;
+        }
+
+        public long getLatency() {
+            return latency.get();
+        }
+    }
+}
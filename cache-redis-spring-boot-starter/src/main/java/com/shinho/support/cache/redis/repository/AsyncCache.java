@@ -0,0 +1,42 @@
+package com.shinho.support.cache.redis.repository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author 傅为地
+ * 支持异步读写的缓存
+ * 通过CacheRedisManager.getAsyncCache(name)获取，redis访问在异步线程池执行，本地一级缓存命中时直接返回已完成的结果
+ */
+public interface AsyncCache extends BatchCache {
+
+    /**
+     * 异步获取缓存
+     * @param key 缓存key
+     * @return 未命中时结果为null，空值缓存命中时为值为null的ValueWrapper
+     */
+    CompletableFuture<ValueWrapper> getAsync(Object key);
+
+    /**
+     * 异步批量获取缓存
+     * @param keys 缓存key集合
+     * @return 与getAll相同
+     */
+    CompletableFuture<Map<Object, Object>> getAllAsync(Collection<?> keys);
+
+    /**
+     * 异步写入缓存
+     * @param key 缓存key
+     * @param value 缓存对象
+     * @return 写入完成
+     */
+    CompletableFuture<Void> putAsync(Object key, Object value);
+
+    /**
+     * 异步清除缓存
+     * @param key 缓存key
+     * @return 清除完成
+     */
+    CompletableFuture<Void> evictAsync(Object key);
+}
@@ -0,0 +1,27 @@
+package com.shinho.support.cache.redis.repository;
+
+import org.springframework.cache.Cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * @author 傅为地
+ * 支持批量读写的缓存
+ * 通过CacheRedisManager.getBatchCache(name)获取，一次网络往返完成多个key的读写
+ */
+public interface BatchCache extends Cache {
+
+    /**
+     * 批量获取缓存
+     * @param keys 缓存key集合
+     * @return 命中的缓存，按传入顺序排列，未命中的key不包含在结果中；空值缓存命中时value为null
+     */
+    Map<Object, Object> getAll(Collection<?> keys);
+
+    /**
+     * 批量写入缓存，使用管道一次提交
+     * @param values key与缓存对象，value为null时开启空值缓存才写入
+     */
+    void putAll(Map<?, ?> values);
+}
@@ -0,0 +1,17 @@
+package com.shinho.support.cache.redis.repository;
+
+/**
+ * @author 傅为地
+ * 缓存清空方式
+ */
+public enum CacheClearMode {
+
+    /** keys匹配后删除，数据量大时会阻塞redis，仅适合少量数据*/
+    KEYS,
+
+    /** 递增缓存代数，key中带有代数，清空只需一次INCR，旧数据依靠过期时间自然淘汰*/
+    GENERATION,
+
+    /** 后台scan分批unlink删除，不阻塞redis，清空过程中仍可能读到旧数据*/
+    SCAN
+}
@@ -0,0 +1,183 @@
+package com.shinho.support.cache.redis.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author 傅为地
+ * 单个key读取自动合并为批量读取
+ * 时间窗口内或者达到每批数量前的并发读取合并为一批：缓存通过getAll一次读取，未命中的key调用一次批量加载，结果通过putAll写回后分发给各调用方
+ * 每批第一个调用方负责等待窗口并执行，不占用额外线程；同一批内相同key只读取一次
+ * 批量加载结果按key的toString与元素的缓存key匹配，元素与结果的数字类型不同时(如Integer和Long)也能匹配
+ */
+@Slf4j
+public class CacheDataLoader {
+
+    private final BatchCache cache;
+
+    private final BatchLoader loader;
+
+    //每批最多key数量
+    private final int maxBatch;
+
+    //合并等待毫秒数
+    private final long window;
+
+    private final Object lock = new Object();
+
+    //正在收集的一批,为null时下一个调用方开始新的一批
+    private Batch current;
+
+    /**
+     * @param cache 批量缓存
+     * @param loader 批量加载未命中的元素
+     * @param maxBatch 每批最多key数量
+     * @param window 合并等待毫秒数
+     */
+    public CacheDataLoader(BatchCache cache, BatchLoader loader, int maxBatch, long window) {
+        this.cache = cache;
+        this.loader = loader;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.window = Math.max(0L, window);
+    }
+
+    /**
+     * 读取元素对应的数据，缓存key为元素本身
+     * @param element 元素
+     * @return 缓存和加载结果中都不存在时返回null
+     * @throws Exception 批量加载失败时抛出
+     */
+    public Object load(Object element) throws Exception {
+        return load(element, element.toString());
+    }
+
+    /**
+     * 读取元素对应的数据
+     * @param element 元素，传给批量加载
+     * @param key 元素的缓存key
+     * @return 缓存和加载结果中都不存在时返回null
+     * @throws Exception 批量加载失败时抛出
+     */
+    public Object load(Object element, String key) throws Exception {
+        Batch batch;
+        CompletableFuture<Object> future;
+        boolean leader = false;
+        synchronized (lock) {
+            if (current == null) {
+                current = new Batch();
+                leader = true;
+            }
+            batch = current;
+            future = batch.futures.get(key);
+            if (future == null) {
+                future = new CompletableFuture<Object>();
+                batch.futures.put(key, future);
+                batch.elements.put(key, element);
+            }
+            if (batch.futures.size() >= maxBatch) {
+                current = null;
+                batch.full.countDown();
+            }
+        }
+        if (leader) {
+            try {
+                batch.full.await(window, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (lock) {
+                if (current == batch) {
+                    current = null;
+                }
+            }
+            dispatch(batch);
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    /*读取一批缓存,加载未命中的元素后写回,完成各调用方的结果*/
+    private void dispatch(Batch batch) {
+        try {
+            Map<Object, Object> values = cache.getAll(batch.elements.keySet());
+            List<String> missKeys = new ArrayList<String>();
+            List<Object> missElements = new ArrayList<Object>();
+            for (Map.Entry<String, Object> entry : batch.elements.entrySet()) {
+                if (!values.containsKey(entry.getKey())) {
+                    missKeys.add(entry.getKey());
+                    missElements.add(entry.getValue());
+                }
+            }
+            if (!missKeys.isEmpty()) {
+                Map<String, Object> loaded = byKey(loader.load(missElements));
+                //未返回的元素写入空值,开启空值缓存时生效
+                Map<Object, Object> writes = new LinkedHashMap<Object, Object>();
+                for (String missKey : missKeys) {
+                    writes.put(missKey, loaded.get(missKey));
+                }
+                cache.putAll(writes);
+                values.putAll(writes);
+            }
+            log.debug("redis cache data loader batch:{},miss:{}", batch.elements.size(), missKeys.size());
+            for (Map.Entry<String, CompletableFuture<Object>> entry : batch.futures.entrySet()) {
+                entry.getValue().complete(values.get(entry.getKey()));
+            }
+        } catch (Throwable e) {
+            for (CompletableFuture<Object> future : batch.futures.values()) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /*批量加载结果按key的字符串索引,与元素类型(如Integer和Long)无关*/
+    private Map<String, Object> byKey(Map<?, ?> loaded) {
+        Map<String, Object> result = new HashMap<String, Object>();
+        if (loaded != null) {
+            for (Map.Entry<?, ?> entry : loaded.entrySet()) {
+                if (entry.getKey() != null) {
+                    result.put(entry.getKey().toString(), entry.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量加载
+     */
+    public interface BatchLoader {
+
+        /**
+         * 加载未命中的元素
+         * @param elements 元素
+         * @return 缓存key与数据，key的toString与元素的缓存key一致，未返回的元素按不存在处理
+         * @throws Exception 加载失败
+         */
+        Map<?, ?> load(List<Object> elements) throws Exception;
+    }
+
+    /*一批合并的读取*/
+    private static final class Batch {
+
+        //缓存key与元素
+        private final Map<String, Object> elements = new LinkedHashMap<String, Object>();
+
+        //缓存key与等待结果的调用方
+        private final Map<String, CompletableFuture<Object>> futures = new LinkedHashMap<String, CompletableFuture<Object>>();
+
+        //达到每批数量时通知
+        private final CountDownLatch full = new CountDownLatch(1);
+    }
+}
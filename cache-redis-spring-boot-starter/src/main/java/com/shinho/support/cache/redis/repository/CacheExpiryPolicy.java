@@ -0,0 +1,113 @@
+package com.shinho.support.cache.redis.repository;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author 傅为地
+ * 缓存过期时间策略，避免批量写入的缓存在同一秒过期
+ * 随机抖动：存活时间减去[0,抖动范围]内的随机秒数，抖动范围取存活时间百分比和固定秒数中较大者，配置的存活时间仍为上限；
+ * 过期平滑：按秒统计本节点写入的过期时刻，某一秒过期数量达到上限时提前到前面未满的秒，最多提前window秒
+ */
+public class CacheExpiryPolicy {
+
+    //过期统计清理间隔(毫秒)
+    private static final long CLEAN_INTERVAL = 1000L;
+
+    //抖动百分比
+    private final int jitterPercent;
+
+    //抖动固定秒数
+    private final long jitterRange;
+
+    //每秒最多过期数量,小于等于0时不平滑
+    private final int maxPerSecond;
+
+    //平滑最多提前秒数
+    private final long window;
+
+    //过期时刻(秒)与数量
+    private final ConcurrentMap<Long, AtomicInteger> expireCounts = new ConcurrentHashMap<Long, AtomicInteger>();
+
+    private final AtomicLong cleanedAt = new AtomicLong(0L);
+
+    /**
+     * @param jitterPercent 抖动百分比
+     * @param jitterRange 抖动固定秒数
+     * @param maxPerSecond 每秒最多过期数量,小于等于0时不平滑
+     * @param window 平滑最多提前秒数
+     */
+    public CacheExpiryPolicy(int jitterPercent, long jitterRange, int maxPerSecond, long window) {
+        this.jitterPercent = Math.max(0, Math.min(jitterPercent, 100));
+        this.jitterRange = Math.max(0L, jitterRange);
+        this.maxPerSecond = maxPerSecond;
+        this.window = Math.max(0L, window);
+    }
+
+    /**
+     * 计算实际存活时间
+     * @param ttl 配置的存活秒数,小于等于0表示不过期
+     * @return 实际存活秒数,不小于1
+     */
+    public long apply(long ttl) {
+        if (ttl <= 0) {
+            return ttl;
+        }
+        long span = Math.max(ttl * jitterPercent / 100, jitterRange);
+        //至少保留1秒
+        span = Math.min(span, ttl - 1);
+        long live = span > 0 ? ttl - ThreadLocalRandom.current().nextLong(span + 1) : ttl;
+        return maxPerSecond > 0 ? smooth(live) : live;
+    }
+
+    /**
+     * 当前记录的未过期时刻数量
+     * @return size
+     */
+    public int getTrackedSeconds() {
+        return expireCounts.size();
+    }
+
+    /*按秒限制过期数量,已满时向前查找*/
+    private long smooth(long live) {
+        long now = System.currentTimeMillis() / 1000L;
+        clean(now);
+        long target = now + live;
+        long last = Math.max(now + 1, target - window);
+        for (long second = target; second >= last; second--) {
+            AtomicInteger count = expireCounts.get(second);
+            if (count == null) {
+                AtomicInteger created = new AtomicInteger();
+                count = expireCounts.putIfAbsent(second, created);
+                if (count == null) {
+                    count = created;
+                }
+            }
+            if (count.incrementAndGet() <= maxPerSecond) {
+                return second - now;
+            }
+            count.decrementAndGet();
+        }
+        //窗口内全部已满,使用原过期时刻
+        return live;
+    }
+
+    /*清理已经过去的秒*/
+    private void clean(long now) {
+        long millis = now * 1000L;
+        long last = cleanedAt.get();
+        if (millis - last < CLEAN_INTERVAL || !cleanedAt.compareAndSet(last, millis)) {
+            return;
+        }
+        Iterator<Long> it = expireCounts.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next() <= now) {
+                it.remove();
+            }
+        }
+    }
+}
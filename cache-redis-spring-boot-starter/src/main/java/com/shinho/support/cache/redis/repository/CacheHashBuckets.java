@@ -0,0 +1,79 @@
+package com.shinho.support.cache.redis.repository;
+
+/**
+ * @author 傅为地
+ * hash分桶存储辅助方法
+ * 字段值前8字节为过期时刻(毫秒)，0表示不过期，读取时已过期的字段按不存在处理
+ */
+final class CacheHashBuckets {
+
+    //桶key中缓存名称之后的标识
+    static final String BUCKET_INFIX = "hb_";
+
+    //过期时刻字节数
+    static final int DEADLINE_LENGTH = 8;
+
+    private CacheHashBuckets() {
+    }
+
+    /**
+     * 字段所在的桶
+     * @param field 字段
+     * @param buckets 桶数量
+     * @return 桶序号
+     */
+    static int bucket(String field, int buckets) {
+        int h = field.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return (h & 0x7fffffff) % buckets;
+    }
+
+    /**
+     * 值前写入过期时刻
+     * @param value 缓存数据
+     * @param deadline 过期时刻(毫秒)，0表示不过期
+     * @return 字段值
+     */
+    static byte[] wrap(byte[] value, long deadline) {
+        byte[] bytes = new byte[DEADLINE_LENGTH + value.length];
+        for (int i = 0; i < DEADLINE_LENGTH; i++) {
+            bytes[i] = (byte) (deadline >>> (56 - i * 8));
+        }
+        System.arraycopy(value, 0, bytes, DEADLINE_LENGTH, value.length);
+        return bytes;
+    }
+
+    /**
+     * 去掉过期时刻
+     * @param raw 字段值
+     * @param now 当前时刻(毫秒)
+     * @return 缓存数据，已过期或格式不正确时返回null
+     */
+    static byte[] unwrap(byte[] raw, long now) {
+        if (raw == null || isExpired(raw, now)) {
+            return null;
+        }
+        byte[] value = new byte[raw.length - DEADLINE_LENGTH];
+        System.arraycopy(raw, DEADLINE_LENGTH, value, 0, value.length);
+        return value;
+    }
+
+    /**
+     * 字段是否已过期
+     * @param raw 字段值
+     * @param now 当前时刻(毫秒)
+     * @return 格式不正确时同样返回true
+     */
+    static boolean isExpired(byte[] raw, long now) {
+        if (raw.length < DEADLINE_LENGTH) {
+            return true;
+        }
+        long deadline = 0L;
+        for (int i = 0; i < DEADLINE_LENGTH; i++) {
+            deadline = (deadline << 8) | (raw[i] & 0xFF);
+        }
+        return deadline > 0 && now >= deadline;
+    }
+}
@@ -0,0 +1,197 @@
+package com.shinho.support.cache.redis.repository;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * @author 傅为地
+ * 结构化缓存Map，存储为redis hash，字段为Map key的字符串形式
+ * 通过StructuredCache.hashEntry(key)获取，可以只读取、写入或删除其中的字段
+ */
+public class CacheHashEntry extends CacheStructuredEntry {
+
+    CacheHashEntry(CacheRedisRepository cache, String keyf) {
+        super(cache, keyf);
+    }
+
+    /**
+     * 读取全部字段
+     * @return 字段与值，不保证顺序；缓存不存在时返回null
+     */
+    public Map<String, Object> getAll() {
+        Map<byte[], byte[]> fields = execute("redis cache hash entry get error", null, new RedisCallback<Map<byte[], byte[]>>() {
+            @Override
+            public Map<byte[], byte[]> doInRedis(RedisConnection connection) throws DataAccessException {
+                return connection.hGetAll(rawKey);
+            }
+        });
+        if (fields == null || fields.isEmpty()) {
+            cache.getStats().recordMiss();
+            return null;
+        }
+        cache.getStats().recordHit(false);
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        for (Map.Entry<byte[], byte[]> field : fields.entrySet()) {
+            result.put(new String(field.getKey(), StandardCharsets.UTF_8), cache.decodeElement(field.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * 读取一个字段
+     * @param field 字段
+     * @return 缓存或字段不存在时返回null
+     */
+    public Object get(Object field) {
+        final byte[] rawField = field(field);
+        byte[] value = execute("redis cache hash entry get error", null, new RedisCallback<byte[]>() {
+            @Override
+            public byte[] doInRedis(RedisConnection connection) throws DataAccessException {
+                return connection.hGet(rawKey, rawField);
+            }
+        });
+        if (value == null) {
+            cache.getStats().recordMiss();
+            return null;
+        }
+        cache.getStats().recordHit(false);
+        return cache.decodeElement(value);
+    }
+
+    /**
+     * 读取多个字段，一次往返
+     * @param fields 字段
+     * @return 存在的字段与值，按传入顺序排列
+     */
+    public Map<String, Object> get(Collection<?> fields) {
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        if (fields == null || fields.isEmpty()) {
+            return result;
+        }
+        final List<String> names = new ArrayList<String>(fields.size());
+        final byte[][] rawFields = new byte[fields.size()][];
+        for (Object field : fields) {
+            rawFields[names.size()] = field(field);
+            names.add(field.toString());
+        }
+        List<byte[]> values = execute("redis cache hash entry get error", null, new RedisCallback<List<byte[]>>() {
+            @Override
+            public List<byte[]> doInRedis(RedisConnection connection) throws DataAccessException {
+                return connection.hMGet(rawKey, rawFields);
+            }
+        });
+        for (int i = 0; values != null && i < values.size(); i++) {
+            if (values.get(i) != null) {
+                result.put(names.get(i), cache.decodeElement(values.get(i)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 写入一个字段
+     * @param field 字段
+     * @param value 值，null按空值写入
+     * @return 缓存不存在时返回false，不写入
+     */
+    public boolean put(Object field, Object value) {
+        return putAll(Collections.singletonMap(field, value));
+    }
+
+    /**
+     * 写入多个字段，一次往返
+     * @param values 字段与值
+     * @return 缓存不存在时返回false，不写入
+     */
+    public boolean putAll(Map<?, ?> values) {
+        if (values == null || values.isEmpty()) {
+            return false;
+        }
+        final byte[][] fieldsAndValues = new byte[values.size() * 2][];
+        int i = 0;
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            fieldsAndValues[i++] = field(entry.getKey());
+            fieldsAndValues[i++] = encode(entry.getValue());
+        }
+        cache.getStats().recordPut();
+        return execute("redis cache hash entry put error", Boolean.FALSE, new RedisCallback<Boolean>() {
+            @Override
+            public Boolean doInRedis(RedisConnection connection) throws DataAccessException {
+                return CacheRedisCommands.hashPutIfExists(connection, rawKey, fieldsAndValues);
+            }
+        });
+    }
+
+    /**
+     * 删除字段
+     * @param fields 字段
+     * @return 删除数量
+     */
+    public long remove(Object... fields) {
+        if (fields == null || fields.length == 0) {
+            return 0L;
+        }
+        final byte[][] rawFields = new byte[fields.length][];
+        for (int i = 0; i < fields.length; i++) {
+            rawFields[i] = field(fields[i]);
+        }
+        cache.getStats().recordEvict();
+        return execute("redis cache hash entry remove error", 0L, new RedisCallback<Long>() {
+            @Override
+            public Long doInRedis(RedisConnection connection) throws DataAccessException {
+                return connection.hDel(rawKey, rawFields);
+            }
+        });
+    }
+
+    @Override
+    public long size() {
+        return execute("redis cache hash entry size error", 0L, new RedisCallback<Long>() {
+            @Override
+            public Long doInRedis(RedisConnection connection) throws DataAccessException {
+                return connection.hLen(rawKey);
+            }
+        });
+    }
+
+    /**
+     * 整体写入，替换已有缓存；为空时删除缓存，下次读取重新加载
+     * @param values 字段与值
+     */
+    public void load(Map<?, ?> values) {
+        if (values == null || values.isEmpty()) {
+            delete();
+            return;
+        }
+        final List<Map<byte[], byte[]>> batches = new ArrayList<Map<byte[], byte[]>>();
+        Map<byte[], byte[]> batch = null;
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            if (batch == null || batch.size() >= WRITE_BATCH_SIZE) {
+                batch = new LinkedHashMap<byte[], byte[]>();
+                batches.add(batch);
+            }
+            batch.put(field(entry.getKey()), encode(entry.getValue()));
+        }
+        replace(new BiConsumer<RedisConnection, byte[]>() {
+            @Override
+            public void accept(RedisConnection connection, byte[] tmpKey) {
+                for (Map<byte[], byte[]> fields : batches) {
+                    connection.hMSet(tmpKey, fields);
+                }
+            }
+        });
+    }
+
+    /*字段,Map key的字符串形式*/
+    private byte[] field(Object field) {
+        if (field == null) {
+            throw new IllegalArgumentException("redis cache hash entry field is null, key:" + keyf);
+        }
+        return field.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,81 @@
+package com.shinho.support.cache.redis.repository;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author 傅为地
+ * 缓存耗时和数据大小分布统计
+ * 按2的幂划分区间计数，记录时无锁，百分位返回所在区间的上限，误差不超过一倍
+ */
+public class CacheHistogram {
+
+    //区间数量,第0个区间为0,第i个区间为[2^(i-1),2^i)
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    //记录次数
+    private final LongAdder count = new LongAdder();
+
+    //记录值总和
+    private final LongAdder total = new LongAdder();
+
+    //最大值
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    public CacheHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets[64 - Long.numberOfLeadingZeros(value)].increment();
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) total.sum() / n;
+    }
+
+    /**
+     * 百分位近似值
+     * @param percentile 百分位，如0.99
+     * @return 所在区间的上限，不超过最大值
+     */
+    public long getPercentile(double percentile) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0L;
+        }
+        long rank = (long) Math.ceil(n * Math.min(1.0, Math.max(0.0, percentile)));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) {
+                long upper = i == 0 ? 0L : (1L << i) - 1;
+                return Math.min(upper, max.get());
+            }
+        }
+        return max.get();
+    }
+}
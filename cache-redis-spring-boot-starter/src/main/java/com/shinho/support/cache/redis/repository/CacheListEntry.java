@@ -0,0 +1,193 @@
+package com.shinho.support.cache.redis.repository;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * @author 傅为地
+ * 结构化缓存List，存储为redis list
+ * 通过StructuredCache.listEntry(key)获取，可以按下标读取、替换，在末尾追加或按值删除元素
+ * 按值删除比较序列化后的字节，要求相同对象的序列化结果一致(如jdk、json序列化)
+ */
+public class CacheListEntry extends CacheStructuredEntry {
+
+    CacheListEntry(CacheRedisRepository cache, String keyf) {
+        super(cache, keyf);
+    }
+
+    /**
+     * 读取全部元素
+     * @return 元素，缓存不存在时返回null
+     */
+    public List<Object> getAll() {
+        List<Object> values = range(0, -1);
+        if (values.isEmpty()) {
+            cache.getStats().recordMiss();
+            return null;
+        }
+        cache.getStats().recordHit(false);
+        return values;
+    }
+
+    /**
+     * 读取下标范围内的元素
+     * @param start 开始下标，负数从末尾计算
+     * @param end 结束下标(包含)，负数从末尾计算
+     * @return 元素，缓存不存在时返回空集合
+     */
+    public List<Object> range(final long start, final long end) {
+        List<byte[]> values = execute("redis cache list entry range error", null, new RedisCallback<List<byte[]>>() {
+            @Override
+            public List<byte[]> doInRedis(RedisConnection connection) throws DataAccessException {
+                return connection.lRange(rawKey, start, end);
+            }
+        });
+        List<Object> result = new ArrayList<Object>(values == null ? 0 : values.size());
+        if (values != null) {
+            for (byte[] value : values) {
+                result.add(cache.decodeElement(value));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按下标读取元素
+     * @param index 下标，负数从末尾计算
+     * @return 缓存不存在或下标越界时返回null
+     */
+    public Object get(final long index) {
+        byte[] value = execute("redis cache list entry get error", null, new RedisCallback<byte[]>() {
+            @Override
+            public byte[] doInRedis(RedisConnection connection) throws DataAccessException {
+                return connection.lIndex(rawKey, index);
+            }
+        });
+        return value == null ? null : cache.decodeElement(value);
+    }
+
+    /**
+     * 按下标替换元素
+     * @param index 下标，负数从末尾计算
+     * @param value 元素
+     * @return 缓存不存在或下标越界时返回false，不写入
+     */
+    public boolean set(final long index, Object value) {
+        final byte[] valueb = encode(value);
+        cache.getStats().recordPut();
+        return execute("redis cache list entry set error", Boolean.FALSE, new RedisCallback<Boolean>() {
+            @Override
+            public Boolean doInRedis(RedisConnection connection) throws DataAccessException {
+                return CacheRedisCommands.listSetIfExists(connection, rawKey, index, valueb);
+            }
+        });
+    }
+
+    /**
+     * 在末尾追加元素，一次往返
+     * @param values 元素
+     * @return 追加后的元素数量，缓存不存在时返回0，不写入
+     */
+    public long append(Object... values) {
+        return values == null || values.length == 0 ? 0L : append(Arrays.asList(values));
+    }
+
+    /**
+     * 在末尾追加元素，一次往返
+     * @param values 元素
+     * @return 追加后的元素数量，缓存不存在时返回0，不写入
+     */
+    public long append(Collection<?> values) {
+        if (values == null || values.isEmpty()) {
+            return 0L;
+        }
+        final byte[][] rawValues = new byte[values.size()][];
+        int i = 0;
+        for (Object value : values) {
+            rawValues[i++] = encode(value);
+        }
+        cache.getStats().recordPut();
+        return execute("redis cache list entry append error", 0L, new RedisCallback<Long>() {
+            @Override
+            public Long doInRedis(RedisConnection connection) throws DataAccessException {
+                return CacheRedisCommands.listPushIfExists(connection, rawKey, rawValues);
+            }
+        });
+    }
+
+    /**
+     * 按值删除元素
+     * @param value 元素
+     * @return 删除数量
+     */
+    public long remove(Object value) {
+        final byte[] valueb = encode(value);
+        cache.getStats().recordEvict();
+        return execute("redis cache list entry remove error", 0L, new RedisCallback<Long>() {
+            @Override
+            public Long doInRedis(RedisConnection connection) throws DataAccessException {
+                return connection.lRem(rawKey, 0, valueb);
+            }
+        });
+    }
+
+    /**
+     * 只保留下标范围内的元素，如trim(-100,-1)保留最后100个
+     * @param start 开始下标，负数从末尾计算
+     * @param end 结束下标(包含)，负数从末尾计算
+     */
+    public void trim(final long start, final long end) {
+        execute("redis cache list entry trim error", null, new RedisCallback<Object>() {
+            @Override
+            public Object doInRedis(RedisConnection connection) throws DataAccessException {
+                connection.lTrim(rawKey, start, end);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public long size() {
+        return execute("redis cache list entry size error", 0L, new RedisCallback<Long>() {
+            @Override
+            public Long doInRedis(RedisConnection connection) throws DataAccessException {
+                return connection.lLen(rawKey);
+            }
+        });
+    }
+
+    /**
+     * 整体写入，替换已有缓存；为空时删除缓存，下次读取重新加载
+     * @param values 元素
+     */
+    public void load(Collection<?> values) {
+        if (values == null || values.isEmpty()) {
+            delete();
+            return;
+        }
+        final List<byte[][]> batches = new ArrayList<byte[][]>();
+        List<byte[]> batch = new ArrayList<byte[]>(Math.min(values.size(), WRITE_BATCH_SIZE));
+        for (Object value : values) {
+            batch.add(encode(value));
+            if (batch.size() >= WRITE_BATCH_SIZE) {
+                batches.add(batch.toArray(new byte[batch.size()][]));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch.toArray(new byte[batch.size()][]));
+        }
+        replace(new BiConsumer<RedisConnection, byte[]>() {
+            @Override
+            public void accept(RedisConnection connection, byte[] tmpKey) {
+                for (byte[][] rawValues : batches) {
+                    connection.rPush(tmpKey, rawValues);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,14 @@
+package com.shinho.support.cache.redis.repository;
+
+/**
+ * @author 傅为地
+ * 序列化后超过最大字节数的缓存数据处理方式
+ */
+public enum CacheOversizeMode {
+
+    /** 不写入redis并删除已有数据，计数并记录警告日志*/
+    SKIP,
+
+    /** 拆分为多个key分块写入，原key只保存分块信息，读取时通过管道取回*/
+    CHUNK
+}
@@ -0,0 +1,54 @@
+package com.shinho.support.cache.redis.repository;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author 傅为地
+ * 缓存穿透防护统计，记录空值缓存和布隆过滤器的命中情况
+ */
+public class CachePenetrationStats {
+
+    //命中空值缓存次数
+    private final LongAdder nullHitCount = new LongAdder();
+
+    //写入空值缓存次数
+    private final LongAdder nullPutCount = new LongAdder();
+
+    //布隆过滤器判定不存在,直接拒绝次数
+    private final LongAdder bloomRejectCount = new LongAdder();
+
+    //布隆过滤器判定可能存在,继续查询次数
+    private final LongAdder bloomPassCount = new LongAdder();
+
+    void recordNullHit() {
+        nullHitCount.increment();
+    }
+
+    void recordNullPut() {
+        nullPutCount.increment();
+    }
+
+    void recordBloomReject() {
+        bloomRejectCount.increment();
+    }
+
+    void recordBloomPass() {
+        bloomPassCount.increment();
+    }
+
+    public long getNullHitCount() {
+        return nullHitCount.sum();
+    }
+
+    public long getNullPutCount() {
+        return nullPutCount.sum();
+    }
+
+    public long getBloomRejectCount() {
+        return bloomRejectCount.sum();
+    }
+
+    public long getBloomPassCount() {
+        return bloomPassCount.sum();
+    }
+}
@@ -0,0 +1,203 @@
+package com.shinho.support.cache.redis.repository;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author 傅为地
+ * 缓存使用的redis原子命令
+ * spring-data-redis 1.x部分命令没有返回值或者不支持，统一通过lua脚本执行
+ */
+public final class CacheRedisCommands {
+
+    //SET NX PX,成功返回1
+    private static final byte[] SET_NX_PX = ("if redis.call('SET',KEYS[1],ARGV[1],'PX',ARGV[2],'NX') then return 1 else return 0 end")
+            .getBytes(StandardCharsets.UTF_8);
+
+    //不存在时写入,PX为0时不过期;写入成功返回nil,已存在时返回当前值
+    private static final byte[] PUT_IF_ABSENT = ("local ok if tonumber(ARGV[2])>0 then ok=redis.call('SET',KEYS[1],ARGV[1],'PX',ARGV[2],'NX') "
+            + "else ok=redis.call('SET',KEYS[1],ARGV[1],'NX') end if ok then return false end return redis.call('GET',KEYS[1])")
+            .getBytes(StandardCharsets.UTF_8);
+
+    //当前值等于期望值或不存在时写入,PX为0时不过期;写入成功返回nil,否则返回当前值
+    private static final byte[] COMPARE_AND_SET = ("local v=redis.call('GET',KEYS[1]) if v and v~=ARGV[1] then return v end "
+            + "if tonumber(ARGV[3])>0 then redis.call('SET',KEYS[1],ARGV[2],'PX',ARGV[3]) else redis.call('SET',KEYS[1],ARGV[2]) end return false")
+            .getBytes(StandardCharsets.UTF_8);
+
+    //值相等时才删除,用于释放自己持有的租约
+    private static final byte[] COMPARE_AND_DELETE = ("if redis.call('GET',KEYS[1])==ARGV[1] then return redis.call('DEL',KEYS[1]) else return 0 end")
+            .getBytes(StandardCharsets.UTF_8);
+
+    //redis4.0以上使用UNLINK异步释放内存,低版本回退DEL
+    private static final byte[] UNLINK = ("local ok=redis.pcall('UNLINK',unpack(KEYS)) if type(ok)=='table' and ok.err then return redis.call('DEL',unpack(KEYS)) end return ok")
+            .getBytes(StandardCharsets.UTF_8);
+
+    //批量设置位图,用于布隆过滤器
+    private static final byte[] SET_BITS = ("for i=1,#ARGV do redis.call('SETBIT',KEYS[1],ARGV[i],1) end return #ARGV")
+            .getBytes(StandardCharsets.UTF_8);
+
+    //写入hash字段,桶的过期时间只延长不缩短,不过期的字段使桶不过期
+    private static final byte[] HASH_PUT = ("redis.call('HSET',KEYS[1],ARGV[1],ARGV[2]) local ms=tonumber(ARGV[3]) "
+            + "if ms<=0 then redis.call('PERSIST',KEYS[1]) return 1 end local t=redis.call('PTTL',KEYS[1]) "
+            + "if (t==-1 and redis.call('HLEN',KEYS[1])==1) or (t>=0 and t<ms) then redis.call('PEXPIRE',KEYS[1],ms) end return 1")
+            .getBytes(StandardCharsets.UTF_8);
+
+    //hash存在时才写入字段,避免未加载的结构化缓存只有部分字段;存在返回1,不存在返回0
+    private static final byte[] HASH_PUT_IF_EXISTS = ("if redis.call('EXISTS',KEYS[1])==0 then return 0 end "
+            + "for i=1,#ARGV,2 do redis.call('HSET',KEYS[1],ARGV[i],ARGV[i+1]) end return 1")
+            .getBytes(StandardCharsets.UTF_8);
+
+    //list存在时才追加元素,返回追加后的长度,不存在返回0
+    private static final byte[] LIST_PUSH_IF_EXISTS = ("if redis.call('EXISTS',KEYS[1])==0 then return 0 end "
+            + "for i=1,#ARGV do redis.call('RPUSH',KEYS[1],ARGV[i]) end return redis.call('LLEN',KEYS[1])")
+            .getBytes(StandardCharsets.UTF_8);
+
+    //list下标在范围内时替换元素,负数下标从末尾计算;替换返回1,否则返回0
+    private static final byte[] LIST_SET_IF_EXISTS = ("local n=redis.call('LLEN',KEYS[1]) local i=tonumber(ARGV[1]) if i<0 then i=n+i end "
+            + "if i<0 or i>=n then return 0 end redis.call('LSET',KEYS[1],i,ARGV[2]) return 1")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private CacheRedisCommands() {
+    }
+
+    /**
+     * 不存在时写入并设置毫秒过期时间
+     * @param connection redis连接
+     * @param key key
+     * @param value value
+     * @param millis 过期毫秒数
+     * @return 是否写入成功
+     */
+    public static boolean setIfAbsent(RedisConnection connection, byte[] key, byte[] value, long millis) {
+        Long result = connection.eval(SET_NX_PX, ReturnType.INTEGER, 1, key, value, String.valueOf(millis).getBytes(StandardCharsets.UTF_8));
+        return result != null && result == 1L;
+    }
+
+    /**
+     * 不存在时写入，已存在时返回当前值，一次往返
+     * @param connection redis连接
+     * @param key key
+     * @param value value
+     * @param millis 过期毫秒数，小于等于0时不过期
+     * @return 写入成功返回null，否则返回已有值
+     */
+    public static byte[] putIfAbsent(RedisConnection connection, byte[] key, byte[] value, long millis) {
+        return connection.eval(PUT_IF_ABSENT, ReturnType.VALUE, 1, key, value, String.valueOf(Math.max(millis, 0L)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 当前值等于期望值或者不存在时写入，已被其他调用方修改时返回当前值，一次往返
+     * @param connection redis连接
+     * @param key key
+     * @param expected 期望的当前值
+     * @param value value
+     * @param millis 过期毫秒数，小于等于0时不过期
+     * @return 写入成功返回null，否则返回当前值
+     */
+    public static byte[] compareAndSet(RedisConnection connection, byte[] key, byte[] expected, byte[] value, long millis) {
+        return connection.eval(COMPARE_AND_SET, ReturnType.VALUE, 1, key, expected, value, String.valueOf(Math.max(millis, 0L)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 值相等时删除
+     * @param connection redis连接
+     * @param key key
+     * @param value 期望值
+     * @return 是否删除
+     */
+    public static boolean compareAndDelete(RedisConnection connection, byte[] key, byte[] value) {
+        Long result = connection.eval(COMPARE_AND_DELETE, ReturnType.INTEGER, 1, key, value);
+        return result != null && result > 0;
+    }
+
+    /**
+     * 删除key，redis4.0以上不阻塞主线程释放内存
+     * @param connection redis连接
+     * @param keys keys
+     * @return 删除数量
+     */
+    public static long unlink(RedisConnection connection, byte[]... keys) {
+        if (keys == null || keys.length == 0) {
+            return 0L;
+        }
+        Long result = connection.eval(UNLINK, ReturnType.INTEGER, keys.length, keys);
+        return result == null ? 0L : result;
+    }
+
+    /**
+     * 一次往返设置多个位
+     * @param connection redis连接
+     * @param key 位图key
+     * @param offsets 位偏移
+     * @return 设置数量
+     */
+    public static long setBits(RedisConnection connection, byte[] key, long... offsets) {
+        if (offsets == null || offsets.length == 0) {
+            return 0L;
+        }
+        byte[][] keysAndArgs = new byte[offsets.length + 1][];
+        keysAndArgs[0] = key;
+        for (int i = 0; i < offsets.length; i++) {
+            keysAndArgs[i + 1] = String.valueOf(offsets[i]).getBytes(StandardCharsets.UTF_8);
+        }
+        Long result = connection.eval(SET_BITS, ReturnType.INTEGER, 1, keysAndArgs);
+        return result == null ? 0L : result;
+    }
+
+    /**
+     * 写入hash字段并延长桶的过期时间
+     * @param connection redis连接
+     * @param key 桶key
+     * @param field 字段
+     * @param value 字段值
+     * @param millis 字段存活毫秒数，小于等于0表示不过期
+     */
+    public static void hashPut(RedisConnection connection, byte[] key, byte[] field, byte[] value, long millis) {
+        connection.eval(HASH_PUT, ReturnType.INTEGER, 1, key, field, value, String.valueOf(millis).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * hash存在时写入字段
+     * @param connection redis连接
+     * @param key hash key
+     * @param fieldsAndValues 字段与字段值交替排列
+     * @return hash不存在时返回false，不写入
+     */
+    public static boolean hashPutIfExists(RedisConnection connection, byte[] key, byte[]... fieldsAndValues) {
+        byte[][] keysAndArgs = new byte[fieldsAndValues.length + 1][];
+        keysAndArgs[0] = key;
+        System.arraycopy(fieldsAndValues, 0, keysAndArgs, 1, fieldsAndValues.length);
+        Long result = connection.eval(HASH_PUT_IF_EXISTS, ReturnType.INTEGER, 1, keysAndArgs);
+        return result != null && result == 1L;
+    }
+
+    /**
+     * list存在时在末尾追加元素
+     * @param connection redis连接
+     * @param key list key
+     * @param values 元素
+     * @return 追加后的长度，list不存在时返回0，不写入
+     */
+    public static long listPushIfExists(RedisConnection connection, byte[] key, byte[]... values) {
+        byte[][] keysAndArgs = new byte[values.length + 1][];
+        keysAndArgs[0] = key;
+        System.arraycopy(values, 0, keysAndArgs, 1, values.length);
+        Long result = connection.eval(LIST_PUSH_IF_EXISTS, ReturnType.INTEGER, 1, keysAndArgs);
+        return result == null ? 0L : result;
+    }
+
+    /**
+     * list下标在范围内时替换元素
+     * @param connection redis连接
+     * @param key list key
+     * @param index 下标，负数从末尾计算
+     * @param value 元素
+     * @return list不存在或下标越界时返回false
+     */
+    public static boolean listSetIfExists(RedisConnection connection, byte[] key, long index, byte[] value) {
+        Long result = connection.eval(LIST_SET_IF_EXISTS, ReturnType.INTEGER, 1, key, String.valueOf(index).getBytes(StandardCharsets.UTF_8), value);
+        return result != null && result == 1L;
+    }
+}
@@ -0,0 +1,103 @@
+package com.shinho.support.cache.redis.repository;
+
+import com.shinho.support.cache.redis.hotkey.CacheHotKeyDetector;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleCacheManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author 傅为地
+ * redis缓存管理器
+ * 与SimpleCacheManager用法一致，额外提供批量缓存、异步缓存、结构化缓存、访问统计和热点key的获取入口
+ * 初始化时启动各缓存的写后缓存队列，销毁时等待队列写完
+ */
+public class CacheRedisManager extends SimpleCacheManager implements DisposableBean {
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        for (String name : getCacheNames()) {
+            Cache cache = getCache(name);
+            if (cache instanceof CacheRedisRepository) {
+                ((CacheRedisRepository) cache).startWriteBehind();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (String name : getCacheNames()) {
+            Cache cache = getCache(name);
+            if (cache instanceof CacheRedisRepository) {
+                ((CacheRedisRepository) cache).stopWriteBehind();
+            }
+        }
+    }
+
+    /**
+     * 获取支持批量读写的缓存
+     * @param name 缓存名称
+     * @return 缓存不存在或不支持批量时返回null
+     */
+    public BatchCache getBatchCache(String name) {
+        Cache cache = getCache(name);
+        return cache instanceof BatchCache ? (BatchCache) cache : null;
+    }
+
+    /**
+     * 获取支持异步读写的缓存
+     * @param name 缓存名称
+     * @return 缓存不存在或不支持异步时返回null
+     */
+    public AsyncCache getAsyncCache(String name) {
+        Cache cache = getCache(name);
+        return cache instanceof AsyncCache ? (AsyncCache) cache : null;
+    }
+
+    /**
+     * 获取支持结构化缓存的缓存
+     * @param name 缓存名称
+     * @return 缓存不存在或不支持结构化缓存时返回null
+     */
+    public StructuredCache getStructuredCache(String name) {
+        Cache cache = getCache(name);
+        return cache instanceof StructuredCache ? (StructuredCache) cache : null;
+    }
+
+    /**
+     * 各单项缓存的访问统计
+     * @return 缓存名称与访问统计
+     */
+    public Map<String, CacheRedisStats> getStats() {
+        Map<String, CacheRedisStats> stats = new LinkedHashMap<String, CacheRedisStats>();
+        for (String name : getCacheNames()) {
+            Cache cache = getCache(name);
+            if (cache instanceof CacheRedisRepository) {
+                stats.put(name, ((CacheRedisRepository) cache).getStats());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * 各单项缓存当前的热点key
+     * @return 缓存名称与热点key列表(按估算读取次数倒序)，未开启热点key识别的缓存不返回
+     */
+    public Map<String, List<Map.Entry<String, Long>>> getHotKeys() {
+        Map<String, List<Map.Entry<String, Long>>> hotKeys = new LinkedHashMap<String, List<Map.Entry<String, Long>>>();
+        for (String name : getCacheNames()) {
+            Cache cache = getCache(name);
+            if (cache instanceof CacheRedisRepository) {
+                CacheHotKeyDetector detector = ((CacheRedisRepository) cache).getHotKeyDetector();
+                if (detector != null) {
+                    hotKeys.put(name, detector.getHotKeys());
+                }
+            }
+        }
+        return hotKeys;
+    }
+}
@@ -1,5 +1,17 @@
 package com.shinho.support.cache.redis.repository;
 
+import com.shinho.support.cache.redis.bloom.CacheBloomFilter;
+import com.shinho.support.cache.redis.breaker.CacheRedisBreakerOpenException;
+import com.shinho.support.cache.redis.breaker.CacheRedisCircuitBreaker;
+import com.shinho.support.cache.redis.hotkey.CacheHotKeyDetector;
+import com.shinho.support.cache.redis.local.CacheRedisInvalidationListener;
+import com.shinho.support.cache.redis.local.LocalCacheStore;
+import com.shinho.support.cache.redis.pool.CacheRedisPool;
+import com.shinho.support.cache.redis.pool.CacheRedisShards;
+import com.shinho.support.cache.redis.replica.CacheReadFrom;
+import com.shinho.support.cache.redis.replica.CacheReadRouter;
+import com.shinho.support.cache.redis.serializer.CacheValueCodec;
+import com.shinho.support.cache.redis.serializer.CacheValueEntry;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.Cache;
@@ -8,18 +20,47 @@ import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.serializer.SerializationException;
 
-import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * @author 傅为地
  * 自定义配置redis缓存
  * 自定义生成key策略，目前分开了不同的缓存name区：
  * 如当前cacheName的名字是defalut：那么就增删改查时，都会生成的key带上前缀:projectName+"_fn_"+cacheName+"_"],类似于ehcache功能
+ * 开启本地一级缓存时，读取优先命中本地，写入和清除通过redis pub/sub通知其他节点失效本地缓存
+ * 开启提前刷新时，缓存数据记录写入时刻和加载耗时，临近过期的命中由后台线程重新加载，调用方直接返回当前值
+ * 开启过期保留时，超过存活时间(软过期)的数据在redis中再保留一段时间(硬过期)，后台刷新期间返回旧值
+ * 配置熔断器时，redis异常不再抛出，按未命中处理或返回本地保留的旧数据，熔断打开期间不访问redis
+ * 开启空值缓存时，null结果写入空值标记并使用较短的存活时间；配置布隆过滤器时，一定不存在的key直接返回null
+ * 配置过期策略时，每次写入的存活时间按抖动和平滑规则调整，避免批量写入的数据同时过期
+ * 开启热点key识别时，本地一级缓存未命中的读取计入热点统计，热点key在本节点保留短时副本，冷却后移除
+ * 命中、未命中、写入、清除、异常次数及redis往返、序列化耗时和数据大小分布记录在stats中
+ * 异步方法在asyncExecutor中访问redis；写入CompletableFuture时等待其正常完成后缓存结果值
+ * hash存储结构时，缓存数据按key分桶存入小hash，字段值带有过期时刻，桶的过期时间取字段中最长的存活时间
+ * 配置最大字节数时，序列化后超过该值的数据不写入redis，或者拆分为多个key分块写入，避免单条命令长时间占用redis
+ * 配置分片时，key按一致性哈希分布到多个连接池，批量读写按连接池分组执行，缓存代数和失效广播使用redisTemplate所在的主连接池
+ * 结构化缓存的Map/List存储为redis hash/list，与同一key的普通缓存分开存储，可以只读写其中的元素
  */
 @Slf4j
 @Builder
@@ -28,7 +69,37 @@ import java.util.concurrent.Callable;
 @AllArgsConstructor
 @EqualsAndHashCode(callSuper = false)
 @SuppressWarnings("unchecked")
-public class CacheRedisRepository implements Cache {
+public class CacheRedisRepository implements AsyncCache, StructuredCache {
+
+    //加载租约key后缀
+    private static final String LEASE_SUFFIX = "_lease";
+
+    //结构化缓存key后缀
+    static final String STRUCTURED_SUFFIX = "_struct";
+
+    //等待其他节点加载时的轮询间隔(毫秒)
+    private static final long LEASE_POLL_INTERVAL = 20L;
+
+    //缓存代数key后缀
+    private static final String GENERATION_SUFFIX = "gen";
+
+    //缓存代数本地刷新间隔(毫秒),其他节点清空时也会通过广播立即刷新
+    private static final long GENERATION_REFRESH_INTERVAL = 1000L;
+
+    //scan清理每批数量
+    private static final int SCAN_BATCH_SIZE = 500;
+
+    //批量读写每批key数量,避免单条命令过大
+    private static final int MULTI_BATCH_SIZE = 500;
+
+    //批量读取时未命中的占位
+    private static final Object MISSING = new Object();
+
+    //putIfAbsent替换软过期数据时最多比较次数
+    private static final int PUT_IF_ABSENT_ATTEMPTS = 3;
+
+    //hash存储结构时,每次写入后清理所在桶已过期字段的概率倒数
+    private static final int HASH_SWEEP_RATE = 64;
 
     //缓存固定名称
     private String name;
@@ -46,6 +117,121 @@ public class CacheRedisRepository implements Cache {
 
     private RedisConnectionFactory connectionFactory;
 
+    //缓存值编解码,决定序列化方式
+    private CacheValueCodec codec;
+
+    //本地一级缓存,为null时不开启
+    private LocalCacheStore localCache;
+
+    //本地一级缓存存活时间(秒)
+    private long localTimeout;
+
+    //本地缓存跨节点失效广播通道
+    private String channel;
+
+    //跨节点加载租约时长(毫秒),小于等于0时不开启
+    private long leaseTimeout;
+
+    //未获得租约时最长等待毫秒数
+    private long leaseWait;
+
+    //缓存清空方式,默认keys
+    private CacheClearMode clearMode;
+
+    //存储结构,为null时每个key一个字符串
+    private CacheStorageLayout layout;
+
+    //hash存储结构的分桶数量
+    private int hashBuckets;
+
+    //序列化后最大字节数,小于等于0时不限制
+    private long maxValueSize;
+
+    //超过最大字节数时的处理方式,为null时不写入
+    private CacheOversizeMode oversizeMode;
+
+    //分块写入时每块字节数
+    private int chunkSize;
+
+    //后台任务线程池,用于scan清理等异步任务
+    private TaskExecutor executor;
+
+    //是否开启提前刷新,仅对@Cacheable(sync=true)生效
+    private boolean refreshAhead;
+
+    //剩余存活时间低于该比例时刷新,如0.2表示最后20%的存活时间内刷新
+    private double refreshRatio;
+
+    //XFetch概率提前刷新系数,越大越早刷新,小于等于0时不开启
+    private double refreshBeta;
+
+    //提前刷新线程池,队列满时放弃本次刷新
+    private TaskExecutor refreshExecutor;
+
+    //软过期后在redis中继续保留的秒数,小于等于0时不开启
+    private long staleTimeout;
+
+    //redis访问熔断器,为null时不开启
+    private CacheRedisCircuitBreaker breaker;
+
+    //空值缓存存活时间(秒),小于等于0时不缓存空值
+    private long nullTimeout;
+
+    //布隆过滤器,为null时不开启
+    private CacheBloomFilter bloomFilter;
+
+    //过期时间抖动和平滑策略,为null时使用固定存活时间
+    private CacheExpiryPolicy expiryPolicy;
+
+    //异步访问线程池,为null时异步方法在调用方线程执行
+    private TaskExecutor asyncExecutor;
+
+    //热点key识别,为null时不开启
+    private CacheHotKeyDetector hotKeyDetector;
+
+    //热点key本地副本,与hotKeyDetector同时配置
+    private LocalCacheStore hotCache;
+
+    //热点key本地副本存活毫秒数
+    private long hotTimeout;
+
+    //写后缓存队列,为null时同步写入
+    private CacheWriteBehindQueue writeBehind;
+
+    //读取路由,为null时只从主节点读取
+    private CacheReadRouter readRouter;
+
+    //读取节点选择方式,为null时只从主节点读取
+    private CacheReadFrom readFrom;
+
+    //分片,为null时只使用redisTemplate
+    private CacheRedisShards shards;
+
+    //缓存穿透防护统计
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final CachePenetrationStats penetrationStats = new CachePenetrationStats();
+
+    //缓存访问统计
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final CacheRedisStats stats = new CacheRedisStats();
+
+    //当前缓存代数,-1表示尚未读取
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final AtomicLong generation = new AtomicLong(-1L);
+
+    //上次读取缓存代数的时刻
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final AtomicLong generationCheckedAt = new AtomicLong(0L);
+
+    //本节点正在加载的key
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final ConcurrentMap<String, FutureTask<Object>> inFlight = new ConcurrentHashMap<String, FutureTask<Object>>();
+
     @Override
     public String getName() {
         return this.name;
@@ -65,25 +251,80 @@ public class CacheRedisRepository implements Cache {
     @Override
     public ValueWrapper get(Object key) {
         if (enable) {
+            //一定不存在的key,开启空值缓存时与空值标记相同返回null值,否则按未命中处理,避免基本类型返回值拆箱异常
+            if (isRejected(key)) {
+                return nullTimeout > 0 ? new SimpleValueWrapper(null) : null;
+            }
             final String keyf = getUkPrfex(key.toString());
-            Object object = null;
-            object = redisTemplate.execute(new RedisCallback<Object>() {
-                @Override
-                public Object doInRedis(RedisConnection connection) throws DataAccessException {
-                    byte[] key = keyf.getBytes();
-                    byte[] value = connection.get(key);
-                    if (value == null) {
-                        return null;
-                    }
-                    return toObject(value);
+            if (localCache != null) {
+                ValueWrapper local = localCache.get(keyf);
+                if (local != null) {
+                    recordLocalHit(local);
+                    return local;
                 }
-            });
-            return (object != null ? new SimpleValueWrapper(object) : null);
+            }
+            ValueWrapper hot = getHotLocal(keyf);
+            if (hot != null) {
+                recordLocalHit(hot);
+                return hot;
+            }
+            CacheValueEntry entry;
+            try {
+                entry = getEntry(keyf);
+            } catch (RuntimeException e) {
+                handleRedisError("redis cache get object error", keyf, e);
+                return getStaleLocal(keyf);
+            }
+            if (entry != null && !isStale(entry)) {
+                stats.recordHit(false);
+                return new SimpleValueWrapper(entry.getValue());
+            }
+            stats.recordMiss();
+            return null;
         } else {
             return null;
         }
     }
 
+    /*读取redis缓存数据及写入元数据,未软过期时写入本地缓存,空值缓存返回CacheValueEntry.NULL*/
+    private CacheValueEntry getEntry(final String keyf) {
+        CacheWriteBehindQueue.Write write = writeBehind != null ? writeBehind.peek(keyf) : null;
+        if (write != null) {
+            return write.getValue() == null ? null : toEntry(write.getValue());
+        }
+        CacheValueEntry entry = executeRead(keyf, new RedisCallback<CacheValueEntry>() {
+            @Override
+            public CacheValueEntry doInRedis(RedisConnection connection) throws DataAccessException {
+                byte[] value = resolveChunks(connection, keyf, readValue(connection, keyf));
+                if (value == null) {
+                    return null;
+                }
+                return toEntry(value);
+            }
+        });
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isNullValue()) {
+            penetrationStats.recordNullHit();
+            if (localCache != null) {
+                localCache.put(keyf, null, getNullLiveMillis());
+            }
+            putHotLocal(keyf, null, true);
+            return entry;
+        }
+        if (entry.getValue() == null) {
+            return null;
+        }
+        if (!isStale(entry)) {
+            if (localCache != null) {
+                localCache.put(keyf, entry.getValue(), getLocalLiveMillis());
+            }
+            putHotLocal(keyf, entry.getValue(), false);
+        }
+        return entry;
+    }
+
     /**
      * 方法结果存入缓存
      *
@@ -92,23 +333,72 @@ public class CacheRedisRepository implements Cache {
      */
     @Override
     public void put(Object key, Object value) {
+        if (value instanceof CompletableFuture) {
+            putOnComplete(key, (CompletableFuture<?>) value, System.currentTimeMillis());
+            return;
+        }
+        put(key, value, 0);
+    }
+
+    /*方法返回CompletableFuture时,正常完成后缓存结果值,异常完成不缓存*/
+    private void putOnComplete(final Object key, CompletableFuture<?> future, final long start) {
+        future.whenComplete(new BiConsumer<Object, Throwable>() {
+            @Override
+            public void accept(Object value, Throwable ex) {
+                if (ex == null) {
+                    put(key, value, (int) Math.min(Integer.MAX_VALUE, System.currentTimeMillis() - start));
+                }
+            }
+        });
+    }
+
+    /*写入缓存,computeMillis为加载耗时,开启空值缓存时null写入空值标记*/
+    private void put(Object key, Object value, final int computeMillis) {
         if (enable) {
             final String keyf = getUkPrfex(key.toString());
             final Object valuef = value;
-            final long liveTime = timeout;
-            redisTemplate.execute(new RedisCallback<Long>() {
-                @Override
-                public Long doInRedis(RedisConnection connection)
-                        throws DataAccessException {
-                    byte[] keyb = keyf.getBytes();
-                    byte[] valueb = toByteArray(valuef);
-                    connection.set(keyb, valueb);
-                    if (liveTime > 0) {
-                        connection.expire(keyb, liveTime);
+            final boolean nullValue = value == null && nullTimeout > 0;
+            final long softTime = getLiveTime(nullValue ? nullTimeout : timeout);
+            final long liveTime = nullValue ? softTime : getRedisLiveTime(softTime);
+            stats.recordPut();
+            if (nullValue) {
+                penetrationStats.recordNullPut();
+            } else if (value != null && bloomFilter != null) {
+                bloomFilter.put(key.toString());
+            }
+            final byte[] valueb = nullValue ? codec.encodeNull() : toByteArray(valuef, computeMillis, softTime);
+            final boolean rejected = isRejectedSize(keyf, valueb);
+            try {
+                if (valueb != null && !offerWrite(keyf, rejected ? null : valueb, liveTime)) {
+                    RedisCallback<Object> callback = new RedisCallback<Object>() {
+                        @Override
+                        public Object doInRedis(RedisConnection connection)
+                                throws DataAccessException {
+                            writeSized(connection, keyf, rejected ? null : valueb, liveTime);
+                            publish(connection, CacheRedisInvalidationListener.OP_PUT, keyf);
+                            return null;
+                        }
+                    };
+                    //字符串存储的普通数据SETEX与失效广播一次往返提交
+                    if (!rejected && !isHashLayout() && isDirectWrite(valueb)) {
+                        executePipelined(keyf, callback);
+                    } else {
+                        execute(keyf, callback);
                     }
-                    return 1L;
                 }
-            });
+            } catch (RuntimeException e) {
+                handleRedisError("redis cache put object error", keyf, e);
+            }
+            if (localCache != null) {
+                if (rejected) {
+                    localCache.evict(keyf);
+                } else {
+                    localCache.put(keyf, value, nullValue ? getNullLiveMillis() : getLocalLiveMillis());
+                }
+            }
+            if (hotCache != null) {
+                hotCache.evict(keyf);
+            }
         }
     }
 
@@ -118,17 +408,129 @@ public class CacheRedisRepository implements Cache {
     @Override
     public void evict(Object key) {
         if (enable) {
-            redisTemplate.delete(getUkPrfex(key.toString()));
+            final String keyf = getUkPrfex(key.toString());
+            stats.recordEvict();
+            //进入写后缓存队列时,失效广播随写入一起发送
+            boolean queued = offerWrite(keyf, null, 0L);
+            if (!queued) {
+                try {
+                    execute(keyf, new RedisCallback<Long>() {
+                        @Override
+                        public Long doInRedis(RedisConnection connection) throws DataAccessException {
+                            return deleteValue(connection, keyf);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    handleRedisError("redis cache evict error", keyf, e);
+                }
+            }
+            if (localCache != null) {
+                localCache.evict(keyf);
+            }
+            if (hotCache != null) {
+                hotCache.evict(keyf);
+            }
+            if (!queued) {
+                broadcast(CacheRedisInvalidationListener.OP_EVICT, keyf);
+            }
         }
     }
 
     /**
      * 清除的时候，只会清除缓存名称为name前缀的缓存
+     * generation方式只递增缓存代数，scan方式后台分批删除，keys方式同步匹配删除
      */
     @Override
     public void clear() {
         if (enable) {
-            redisTemplate.delete(redisTemplate.keys(getUkPrfex("*")));
+            String keySpace = getUkPrfex("");
+            if (writeBehind != null) {
+                writeBehind.discard();
+            }
+            try {
+                if (CacheClearMode.GENERATION == clearMode) {
+                    nextGeneration();
+                } else if (CacheClearMode.SCAN == clearMode) {
+                    purge(keySpace + "*");
+                } else {
+                    final byte[] pattern = (keySpace + "*").getBytes(StandardCharsets.UTF_8);
+                    RedisCallback<Long> callback = new RedisCallback<Long>() {
+                        @Override
+                        public Long doInRedis(RedisConnection connection) throws DataAccessException {
+                            Set<byte[]> keys = connection.keys(pattern);
+                            if (keys == null || keys.isEmpty()) {
+                                return 0L;
+                            }
+                            //lua unpack参数数量有限制,分批unlink
+                            long count = 0;
+                            List<byte[]> list = new ArrayList<byte[]>(keys);
+                            for (int from = 0; from < list.size(); from += SCAN_BATCH_SIZE) {
+                                List<byte[]> batch = list.subList(from, Math.min(from + SCAN_BATCH_SIZE, list.size()));
+                                count += CacheRedisCommands.unlink(connection, batch.toArray(new byte[batch.size()][]));
+                            }
+                            return count;
+                        }
+                    };
+                    for (RedisTemplate template : getTemplates()) {
+                        invoke(template, callback, false);
+                    }
+                }
+            } catch (RuntimeException e) {
+                handleRedisError("redis cache clear error", keySpace, e);
+            }
+            if (localCache != null) {
+                localCache.clear();
+            }
+            if (hotCache != null) {
+                hotCache.clear();
+            }
+            broadcast(CacheRedisInvalidationListener.OP_CLEAR, keySpace);
+        }
+    }
+
+    /**
+     * 后台scan匹配key，分批unlink删除，不阻塞redis，配置分片时依次清理各连接池
+     *
+     * @param pattern 匹配表达式
+     */
+    public void purge(final String pattern) {
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    RedisCallback<Long> callback = new RedisCallback<Long>() {
+                        @Override
+                        public Long doInRedis(RedisConnection connection) throws DataAccessException {
+                            long count = 0;
+                            List<byte[]> batch = new ArrayList<byte[]>(SCAN_BATCH_SIZE);
+                            //游标与当前连接绑定,遍历结束即释放,连接由redisTemplate统一关闭
+                            Cursor<byte[]> cursor = connection.scan(ScanOptions.scanOptions().match(pattern).count(SCAN_BATCH_SIZE).build());
+                            while (cursor.hasNext()) {
+                                batch.add(cursor.next());
+                                if (batch.size() >= SCAN_BATCH_SIZE) {
+                                    count += CacheRedisCommands.unlink(connection, batch.toArray(new byte[batch.size()][]));
+                                    batch.clear();
+                                }
+                            }
+                            count += CacheRedisCommands.unlink(connection, batch.toArray(new byte[batch.size()][]));
+                            return count;
+                        }
+                    };
+                    long total = 0;
+                    for (RedisTemplate template : getTemplates()) {
+                        Long count = (Long) template.execute(callback);
+                        total += count == null ? 0L : count;
+                    }
+                    log.info("redis cache purge finished name:{},pattern:{},count:{}", name, pattern, total);
+                } catch (RuntimeException e) {
+                    log.error("redis cache purge error name:{},pattern:{},error:", name, pattern, e);
+                }
+            }
+        };
+        if (executor != null) {
+            executor.execute(task);
+        } else {
+            task.run();
         }
     }
 
@@ -145,14 +547,10 @@ public class CacheRedisRepository implements Cache {
         if (enable) {
             Object object = null;
             try {
-                ValueOperations<String, Object> valueops = redisTemplate.opsForValue();
-                object = valueops.get(getUkPrfex(key.toString()));
-            } catch (IllegalStateException e) {
-                e.printStackTrace();
-                log.error("redis cache get object error key:{},type:{},error:{}", key, type, e);
-            } catch (Exception e) {
-                e.printStackTrace();
-                log.error("redis cache get object error key:{},type:{},error:{}", key, type, e);
+                ValueWrapper wrapper = get(key);
+                object = wrapper == null ? null : wrapper.get();
+            } catch (RuntimeException e) {
+                log.error("redis cache get object error key:{},type:{},error:", key, type, e);
             }
             return isEmpty(object) ? null : (T) object;
         } else {
@@ -161,7 +559,11 @@ public class CacheRedisRepository implements Cache {
     }
 
     /**
-     * 从缓存获取参数
+     * 从缓存获取参数，未命中时加载并写入缓存(@Cacheable(sync=true))
+     * 同一节点相同key并发未命中时只加载一次，其余线程共享加载结果；
+     * 开启租约时，多个节点之间只有获取租约的节点加载，其余节点短暂等待其写入缓存，超时后自行加载；
+     * 开启提前刷新时，redis命中的数据临近过期则提交后台刷新，本次直接返回当前值；
+     * 开启过期保留时，软过期的数据同样提交后台刷新并返回旧值
      *
      * @param key
      * @param valueLoader
@@ -169,27 +571,327 @@ public class CacheRedisRepository implements Cache {
      * @return <T>
      */
     @Override
-    public <T> T get(Object key, Callable<T> valueLoader) {
-        if (enable) {
-            Object object = null;
+    public <T> T get(final Object key, final Callable<T> valueLoader) {
+        if (!enable) {
+            return call(key, valueLoader);
+        }
+        if (isRejected(key)) {
+            return null;
+        }
+        final String keyf = getUkPrfex(key.toString());
+        ValueWrapper local = localCache != null ? localCache.get(keyf) : null;
+        if (local == null) {
+            local = getHotLocal(keyf);
+        }
+        if (local != null) {
+            recordLocalHit(local);
+            return (T) local.get();
+        }
+        CacheValueEntry entry = null;
+        try {
+            entry = getEntry(keyf);
+        } catch (RuntimeException e) {
+            logRedisError("redis cache get object error", keyf, e);
+            ValueWrapper stale = getStaleLocal(keyf);
+            if (stale != null) {
+                return (T) stale.get();
+            }
+        }
+        if (entry != null) {
+            boolean stale = isStale(entry);
+            if (refreshExecutor != null && (stale || (refreshAhead && isRefreshDue(entry)))) {
+                stats.recordHit(false);
+                refresh(key, keyf, valueLoader);
+                return (T) entry.getValue();
+            }
+            if (!stale) {
+                stats.recordHit(false);
+                return (T) entry.getValue();
+            }
+        }
+        stats.recordMiss();
+        FutureTask<Object> task = new FutureTask<Object>(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return load(key, keyf, valueLoader);
+            }
+        });
+        FutureTask<Object> loading = inFlight.putIfAbsent(keyf, task);
+        if (loading == null) {
+            loading = task;
             try {
-                object = get(key, valueLoader.call().getClass());
-            } catch (Exception e) {
-                e.printStackTrace();
-                log.error("redis cache get object error key:{},valueLoader:{},error:{}", key, valueLoader, e);
+                task.run();
+            } finally {
+                inFlight.remove(keyf, task);
             }
-            return (T) object;
-        } else {
+        }
+        try {
+            return (T) loading.get();
+        } catch (CancellationException e) {
+            //提前刷新任务被线程池拒绝,由当前线程加载
+            return (T) load(key, keyf, valueLoader);
+        } catch (ExecutionException e) {
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    /**
+     * 是否需要提前刷新
+     * 剩余存活时间进入refreshRatio比例内时刷新；
+     * 或者按XFetch算法：now - computeMillis * beta * ln(random) >= expireAt，加载越慢越早刷新
+     */
+    private boolean isRefreshDue(CacheValueEntry entry) {
+        if (!entry.hasMeta() || entry.getExpireAt() <= 0) {
+            return false;
+        }
+        long remaining = entry.getExpireAt() - System.currentTimeMillis();
+        if (remaining <= (entry.getExpireAt() - entry.getWriteTime()) * refreshRatio) {
+            return true;
+        }
+        return refreshBeta > 0 && entry.getComputeMillis() > 0
+                && -entry.getComputeMillis() * refreshBeta * Math.log(ThreadLocalRandom.current().nextDouble()) >= remaining;
+    }
+
+    /**
+     * 后台刷新缓存，同一节点相同key只提交一次，刷新期间未命中的线程共享刷新结果
+     */
+    private <T> void refresh(final Object key, final String keyf, final Callable<T> valueLoader) {
+        final FutureTask<Object> task = new FutureTask<Object>(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                try {
+                    return reload(key, keyf, valueLoader);
+                } catch (RuntimeException e) {
+                    log.error("redis cache refresh ahead error key:{},error:", keyf, e);
+                    throw e;
+                }
+            }
+        });
+        if (inFlight.putIfAbsent(keyf, task) != null) {
+            return;
+        }
+        Runnable runner = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } finally {
+                    inFlight.remove(keyf, task);
+                }
+            }
+        };
+        try {
+            refreshExecutor.execute(runner);
+        } catch (TaskRejectedException e) {
+            inFlight.remove(keyf, task);
+            task.cancel(false);
+            log.debug("redis cache refresh ahead rejected key:{}", keyf);
+        }
+    }
+
+    /*后台刷新加载,开启租约时只有获得租约的节点刷新,其余节点按正常流程读取*/
+    private <T> Object reload(Object key, String keyf, Callable<T> valueLoader) {
+        if (leaseTimeout <= 0) {
+            return loadAndPut(key, valueLoader);
+        }
+        final byte[] leaseKey = (keyf + LEASE_SUFFIX).getBytes(StandardCharsets.UTF_8);
+        final byte[] token = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        if (tryLease(keyf, leaseKey, token)) {
+            try {
+                return loadAndPut(key, valueLoader);
+            } finally {
+                releaseLease(keyf, leaseKey, token);
+            }
+        }
+        return load(key, keyf, valueLoader);
+    }
+
+    /**
+     * 单个节点内获得加载权后，再次检查缓存并加载
+     */
+    private <T> Object load(Object key, String keyf, Callable<T> valueLoader) {
+        ValueWrapper wrapper = getQuietly(key);
+        if (wrapper != null) {
+            return wrapper.get();
+        }
+        if (leaseTimeout <= 0) {
+            return loadAndPut(key, valueLoader);
+        }
+        final byte[] leaseKey = (keyf + LEASE_SUFFIX).getBytes(StandardCharsets.UTF_8);
+        final byte[] token = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        if (tryLease(keyf, leaseKey, token)) {
+            try {
+                return loadAndPut(key, valueLoader);
+            } finally {
+                releaseLease(keyf, leaseKey, token);
+            }
+        }
+        //其他节点正在加载,等待其写入缓存
+        long deadline = System.currentTimeMillis() + leaseWait;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(LEASE_POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            wrapper = getQuietly(key);
+            if (wrapper != null) {
+                return wrapper.get();
+            }
+        }
+        log.debug("redis cache wait lease timeout, load by self key:{}", keyf);
+        return loadAndPut(key, valueLoader);
+    }
+
+    /*执行加载并写入缓存*/
+    private <T> Object loadAndPut(Object key, Callable<T> valueLoader) {
+        long start = System.currentTimeMillis();
+        T value = call(key, valueLoader);
+        if (value instanceof CompletableFuture) {
+            putOnComplete(key, (CompletableFuture<?>) value, start);
+            return value;
+        }
+        int computeMillis = (int) Math.min(Integer.MAX_VALUE, System.currentTimeMillis() - start);
+        try {
+            put(key, value, computeMillis);
+        } catch (RuntimeException e) {
+            log.error("redis cache put loaded value error key:{},error:", key, e);
+        }
+        return value;
+    }
+
+    /*执行加载方法*/
+    private <T> T call(Object key, Callable<T> valueLoader) {
+        try {
+            return valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    /*读取缓存,redis异常时按未命中处理*/
+    private ValueWrapper getQuietly(Object key) {
+        try {
+            return get(key);
+        } catch (RuntimeException e) {
+            logRedisError("redis cache get object error", key, e);
             return null;
         }
+    }
+
+    /*获取加载租约,租约与缓存数据在同一个连接池*/
+    private boolean tryLease(String keyf, final byte[] leaseKey, final byte[] token) {
+        try {
+            Boolean result = execute(keyf, new RedisCallback<Boolean>() {
+                @Override
+                public Boolean doInRedis(RedisConnection connection) throws DataAccessException {
+                    return CacheRedisCommands.setIfAbsent(connection, leaseKey, token, leaseTimeout);
+                }
+            });
+            return result == null || result;
+        } catch (RuntimeException e) {
+            logRedisError("redis cache acquire lease error, load by self", new String(leaseKey, StandardCharsets.UTF_8), e);
+            return true;
+        }
+    }
 
+    /*释放加载租约*/
+    private void releaseLease(String keyf, final byte[] leaseKey, final byte[] token) {
+        try {
+            execute(keyf, new RedisCallback<Boolean>() {
+                @Override
+                public Boolean doInRedis(RedisConnection connection) throws DataAccessException {
+                    return CacheRedisCommands.compareAndDelete(connection, leaseKey, token);
+                }
+            });
+        } catch (RuntimeException e) {
+            logRedisError("redis cache release lease error", new String(leaseKey, StandardCharsets.UTF_8), e);
+        }
     }
 
     /**
-     * 自动将指定值在缓存中指定的键是否已经设置
+     * 不存在时写入，已存在时返回当前值
+     * 字符串存储时通过SET NX PX一次往返原子完成，已有数据软过期或无法解析时按读取到的值比较后替换，
+     * 并发时只有一个调用方写入成功，其他调用方返回写入成功的值；hash存储、写后缓存、分块或空值时先读取再写入
      */
     @Override
-    public ValueWrapper putIfAbsent(Object key, Object value) {
+    public ValueWrapper putIfAbsent(Object key, final Object value) {
+        if (!enable) {
+            return null;
+        }
+        if (value == null || value instanceof CompletableFuture || isHashLayout() || writeBehind != null) {
+            return putIfAbsentByGet(key, value);
+        }
+        final String keyf = getUkPrfex(key.toString());
+        ValueWrapper local = localCache != null ? localCache.get(keyf) : null;
+        if (local != null) {
+            recordLocalHit(local);
+            return local;
+        }
+        long softTime = getLiveTime(timeout);
+        final long liveTime = getRedisLiveTime(softTime);
+        final byte[] valueb = toByteArray(value, 0, softTime);
+        if (valueb == null || isOversize(valueb)) {
+            return putIfAbsentByGet(key, value);
+        }
+        Object current;
+        try {
+            current = execute(keyf, new RedisCallback<Object>() {
+                @Override
+                public Object doInRedis(RedisConnection connection) throws DataAccessException {
+                    byte[] existing = CacheRedisCommands.putIfAbsent(connection, keyf.getBytes(), valueb, liveTime * 1000L);
+                    CacheValueEntry entry = null;
+                    for (int i = 0; existing != null; i++) {
+                        byte[] resolved = resolveChunks(connection, keyf, existing);
+                        entry = resolved == null ? null : toEntry(resolved);
+                        if (entry != null && (entry.isNullValue() || (entry.getValue() != null && !isStale(entry)))) {
+                            return entry;
+                        }
+                        if (i >= PUT_IF_ABSENT_ATTEMPTS) {
+                            break;
+                        }
+                        //已有数据软过期、分块缺失或无法解析时,只在未被其他调用方修改时替换
+                        byte[] previous = existing;
+                        existing = CacheRedisCommands.compareAndSet(connection, keyf.getBytes(), previous, valueb, liveTime * 1000L);
+                        if (existing == null && CacheOversizeMode.CHUNK == oversizeMode) {
+                            deleteChunks(connection, keyf, previous);
+                        }
+                    }
+                    if (existing == null) {
+                        publish(connection, CacheRedisInvalidationListener.OP_PUT, keyf);
+                        return MISSING;
+                    }
+                    return entry;
+                }
+            });
+        } catch (RuntimeException e) {
+            handleRedisError("redis cache put if absent error", keyf, e);
+            return null;
+        }
+        if (current == MISSING) {
+            stats.recordPut();
+            if (bloomFilter != null) {
+                bloomFilter.put(key.toString());
+            }
+            if (localCache != null) {
+                localCache.put(keyf, value, getLocalLiveMillis());
+            }
+            if (hotCache != null) {
+                hotCache.evict(keyf);
+            }
+            return null;
+        }
+        //多次比较都被其他调用方修改时返回最后读取到的值
+        CacheValueEntry entry = (CacheValueEntry) current;
+        return new SimpleValueWrapper(entry == null || entry.isNullValue() ? null : entry.getValue());
+    }
+
+    /*先读取再写入,非原子操作*/
+    private ValueWrapper putIfAbsentByGet(Object key, Object value) {
         if (enable) {
             ValueWrapper vw = get(key);
             if (isEmpty(vw)) {
@@ -203,61 +905,1239 @@ public class CacheRedisRepository implements Cache {
         }
     }
 
-    /*保证生成的key唯一前缀*/
-    private String getUkPrfex(String key) {
-        return key.startsWith(keyPrefix+"_fn_" + name + "_") ? key : (keyPrefix+"_fn_" + name + "_" + key);
-    }
-
-    /*判断对象是否为空*/
-    private boolean isEmpty(Object obj) {
-        return obj == null || obj.toString().trim().equals("") || obj.toString().trim().length() == 0;
-    }
-
     /**
-     * 对象转换字节流
+     * 批量获取缓存，本地一级缓存未命中的key通过MGET一次读取
      *
-     * @param obj
-     * @return bytes
+     * @param keys 缓存key集合
+     * @return 命中的缓存，空值缓存命中或布隆过滤器判定不存在时value为null
      */
-    private byte[] toByteArray(Object obj) {
-        byte[] bytes = null;
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        try {
-            ObjectOutputStream oos = new ObjectOutputStream(bos);
-            oos.writeObject(obj);
-            oos.flush();
-            bytes = bos.toByteArray();
-            oos.close();
-            bos.close();
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            log.error("redis cache convent object to byteArray error object:{},error：", obj, ex);
+    @Override
+    public Map<Object, Object> getAll(Collection<?> keys) {
+        final Map<Object, Object> result = new LinkedHashMap<Object, Object>();
+        if (!enable || keys == null || keys.isEmpty()) {
+            return result;
         }
-        return bytes;
+        final List<Object> missKeys = new ArrayList<Object>();
+        final List<String> missKeyfs = new ArrayList<String>();
+        for (Object key : keys) {
+            if (isRejected(key)) {
+                result.put(key, null);
+                continue;
+            }
+            String keyf = getUkPrfex(key.toString());
+            ValueWrapper local = localCache != null ? localCache.get(keyf) : null;
+            if (local == null) {
+                local = getHotLocal(keyf);
+            }
+            if (local != null) {
+                recordLocalHit(local);
+                result.put(key, local.get());
+            } else {
+                result.put(key, MISSING);
+                missKeys.add(key);
+                missKeyfs.add(keyf);
+            }
+        }
+        for (int from = 0; from < missKeyfs.size(); from += MULTI_BATCH_SIZE) {
+            final List<String> batch = missKeyfs.subList(from, Math.min(from + MULTI_BATCH_SIZE, missKeyfs.size()));
+            //先读取写后缓存队列,再读取redis,队列中的数据写入redis后仍能读到
+            CacheWriteBehindQueue.Write[] writes = null;
+            if (writeBehind != null) {
+                writes = new CacheWriteBehindQueue.Write[batch.size()];
+                for (int i = 0; i < batch.size(); i++) {
+                    writes[i] = writeBehind.peek(batch.get(i));
+                }
+            }
+            List<byte[]> values;
+            try {
+                values = multiGet(batch);
+            } catch (RuntimeException e) {
+                handleRedisError("redis cache multi get error", name, e);
+                for (int i = 0; i < batch.size(); i++) {
+                    ValueWrapper stale = getStaleLocal(batch.get(i));
+                    if (stale != null) {
+                        result.put(missKeys.get(from + i), stale.get());
+                    }
+                }
+                continue;
+            }
+            for (int i = 0; values != null && i < values.size(); i++) {
+                byte[] value = writes != null && writes[i] != null ? writes[i].getValue() : values.get(i);
+                CacheValueEntry entry = value == null ? null : toEntry(value);
+                if (entry != null && entry.isNullValue()) {
+                    stats.recordHit(false);
+                    penetrationStats.recordNullHit();
+                    result.put(missKeys.get(from + i), null);
+                    if (localCache != null) {
+                        localCache.put(batch.get(i), null, getNullLiveMillis());
+                    }
+                    putHotLocal(batch.get(i), null, true);
+                } else if (entry != null && entry.getValue() != null && !isStale(entry)) {
+                    stats.recordHit(false);
+                    result.put(missKeys.get(from + i), entry.getValue());
+                    if (localCache != null) {
+                        localCache.put(batch.get(i), entry.getValue(), getLocalLiveMillis());
+                    }
+                    putHotLocal(batch.get(i), entry.getValue(), false);
+                }
+            }
+        }
+        Iterator<Map.Entry<Object, Object>> it = result.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue() == MISSING) {
+                stats.recordMiss();
+                it.remove();
+            }
+        }
+        return result;
     }
 
     /**
-     * 字节流转换对象
+     * 批量写入缓存，SETEX通过管道一次提交
      *
-     * @param bytes
-     * @return obj
+     * @param values key与缓存对象
      */
-    private Object toObject(byte[] bytes) {
-        Object obj = null;
-        try {
-            ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
-            ObjectInputStream ois = new ObjectInputStream(bis);
-            obj = ois.readObject();
-            ois.close();
-            bis.close();
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            log.error("redis cache convent byteArray to object error bytes:{},error：", bytes, ex);
-        } catch (ClassNotFoundException ex) {
-            ex.printStackTrace();
-            log.error("redis cache convent byteArray to object error bytes:{},error：", bytes, ex);
-        }
-        return obj;
+    @Override
+    public void putAll(Map<?, ?> values) {
+        if (!enable || values == null || values.isEmpty()) {
+            return;
+        }
+        final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+        //超过最大字节数或分块写入模式下的数据单独写入,不写入时value为null
+        final Map<String, byte[]> oversized = new LinkedHashMap<String, byte[]>();
+        //每个key单独计算存活时间
+        final Map<String, Long> liveTimes = new HashMap<String, Long>();
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            String keyf = getUkPrfex(entry.getKey().toString());
+            if (hotCache != null) {
+                hotCache.evict(keyf);
+            }
+            if (entry.getValue() == null) {
+                //未开启空值缓存时忽略null
+                if (nullTimeout > 0) {
+                    stats.recordPut();
+                    penetrationStats.recordNullPut();
+                    liveTimes.put(keyf, getLiveTime(nullTimeout));
+                    if (!offerWrite(keyf, codec.encodeNull(), liveTimes.get(keyf))) {
+                        (isDirectWrite(codec.encodeNull()) ? entries : oversized).put(keyf, codec.encodeNull());
+                    }
+                    if (localCache != null) {
+                        localCache.put(keyf, null, getNullLiveMillis());
+                    }
+                }
+                continue;
+            }
+            long softTime = getLiveTime(timeout);
+            byte[] valueb = toByteArray(entry.getValue(), 0, softTime);
+            if (valueb != null) {
+                stats.recordPut();
+                liveTimes.put(keyf, getRedisLiveTime(softTime));
+                if (bloomFilter != null) {
+                    bloomFilter.put(entry.getKey().toString());
+                }
+                boolean rejected = isRejectedSize(keyf, valueb);
+                //未进入写后缓存队列时同步写入
+                if (!offerWrite(keyf, rejected ? null : valueb, liveTimes.get(keyf))) {
+                    if (rejected || !isDirectWrite(valueb)) {
+                        oversized.put(keyf, rejected ? null : valueb);
+                    } else {
+                        entries.put(keyf, valueb);
+                    }
+                }
+                if (localCache != null) {
+                    if (rejected) {
+                        localCache.evict(keyf);
+                    } else {
+                        localCache.put(keyf, entry.getValue(), getLocalLiveMillis());
+                    }
+                }
+            }
+        }
+        final List<Map.Entry<String, byte[]>> list = new ArrayList<Map.Entry<String, byte[]>>(entries.entrySet());
+        for (int from = 0; from < list.size(); from += MULTI_BATCH_SIZE) {
+            Map<RedisTemplate, List<Map.Entry<String, byte[]>>> groups = groupByShard(list.subList(from, Math.min(from + MULTI_BATCH_SIZE, list.size())));
+            for (Map.Entry<RedisTemplate, List<Map.Entry<String, byte[]>>> group : groups.entrySet()) {
+                final List<Map.Entry<String, byte[]>> batch = group.getValue();
+                RedisCallback<Object> callback = new RedisCallback<Object>() {
+                    @Override
+                    public Object doInRedis(RedisConnection connection) throws DataAccessException {
+                        if (isHashLayout()) {
+                            writeValues(connection, batch, liveTimes);
+                            return null;
+                        }
+                        for (Map.Entry<String, byte[]> entry : batch) {
+                            writeValue(connection, entry.getKey(), entry.getValue(), liveTimes.get(entry.getKey()));
+                            publish(connection, CacheRedisInvalidationListener.OP_PUT, entry.getKey());
+                        }
+                        return null;
+                    }
+                };
+                try {
+                    invoke(group.getKey(), callback, !isHashLayout());
+                } catch (RuntimeException e) {
+                    handleRedisError("redis cache multi put error", name, e);
+                }
+            }
+        }
+        for (final Map.Entry<String, byte[]> entry : oversized.entrySet()) {
+            try {
+                execute(entry.getKey(), new RedisCallback<Object>() {
+                    @Override
+                    public Object doInRedis(RedisConnection connection) throws DataAccessException {
+                        writeSized(connection, entry.getKey(), entry.getValue(), liveTimes.get(entry.getKey()));
+                        publish(connection, CacheRedisInvalidationListener.OP_PUT, entry.getKey());
+                        return null;
+                    }
+                });
+            } catch (RuntimeException e) {
+                handleRedisError("redis cache put oversize object error", entry.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * 异步获取缓存，本地一级缓存命中时直接返回已完成的结果
+     *
+     * @param key 缓存key
+     * @return 未命中时结果为null
+     */
+    @Override
+    public CompletableFuture<ValueWrapper> getAsync(final Object key) {
+        if (enable && localCache != null && !isRejected(key)) {
+            ValueWrapper local = localCache.get(getUkPrfex(key.toString()));
+            if (local != null) {
+                recordLocalHit(local);
+                return CompletableFuture.completedFuture(local);
+            }
+        }
+        return submit(new Callable<ValueWrapper>() {
+            @Override
+            public ValueWrapper call() throws Exception {
+                return get(key);
+            }
+        });
+    }
+
+    /**
+     * 异步批量获取缓存
+     *
+     * @param keys 缓存key集合
+     * @return 与getAll相同
+     */
+    @Override
+    public CompletableFuture<Map<Object, Object>> getAllAsync(final Collection<?> keys) {
+        return submit(new Callable<Map<Object, Object>>() {
+            @Override
+            public Map<Object, Object> call() throws Exception {
+                return getAll(keys);
+            }
+        });
+    }
+
+    /**
+     * 异步写入缓存，value为CompletableFuture时等待其完成后写入结果值
+     *
+     * @param key 缓存key
+     * @param value 缓存对象
+     * @return 写入完成
+     */
+    @Override
+    public CompletableFuture<Void> putAsync(final Object key, final Object value) {
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                put(key, value);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 异步清除缓存
+     *
+     * @param key 缓存key
+     * @return 清除完成
+     */
+    @Override
+    public CompletableFuture<Void> evictAsync(final Object key) {
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                evict(key);
+                return null;
+            }
+        });
+    }
+
+    /*在异步线程池执行,线程池拒绝时异常完成*/
+    private <T> CompletableFuture<T> submit(final Callable<T> callable) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    future.complete(callable.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        };
+        if (asyncExecutor == null) {
+            task.run();
+            return future;
+        }
+        try {
+            asyncExecutor.execute(task);
+        } catch (TaskRejectedException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 导出缓存数据，用于记录预热快照
+     *
+     * @param keyfs 完整缓存key
+     * @return key与序列化后的数据，不存在的key不返回
+     */
+    public Map<String, byte[]> export(final Collection<String> keyfs) {
+        if (!enable || keyfs == null || keyfs.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final Map<String, byte[]> values = new LinkedHashMap<String, byte[]>();
+        for (Map.Entry<RedisTemplate, List<String>> group : groupKeysByShard(keyfs).entrySet()) {
+            final List<String> part = group.getValue();
+            invoke(group.getKey(), new RedisCallback<Object>() {
+                @Override
+                public Object doInRedis(RedisConnection connection) throws DataAccessException {
+                    for (String keyf : part) {
+                        byte[] value = resolveChunks(connection, keyf, readValue(connection, keyf));
+                        if (value != null) {
+                            values.put(keyf, value);
+                        }
+                    }
+                    return null;
+                }
+            }, false);
+        }
+        return values;
+    }
+
+    /**
+     * 从预热快照恢复缓存数据，已存在或者不属于当前缓存空间(如generation方式已清空)的key不写入
+     *
+     * @param values key与序列化后的数据
+     * @param liveTime 存活秒数，小于等于0时不过期
+     * @return 写入数量
+     */
+    public int restore(final Map<String, byte[]> values, final long liveTime) {
+        if (!enable || values == null || values.isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        for (Map.Entry<RedisTemplate, List<Map.Entry<String, byte[]>>> group : groupByShard(values.entrySet()).entrySet()) {
+            final List<Map.Entry<String, byte[]>> part = group.getValue();
+            Integer restored = (Integer) invoke(group.getKey(), new RedisCallback<Integer>() {
+                @Override
+                public Integer doInRedis(RedisConnection connection) throws DataAccessException {
+                    int restored = 0;
+                    for (Map.Entry<String, byte[]> entry : part) {
+                        String keyf = entry.getKey();
+                        if (!keyf.equals(getUkPrfex(keyf)) || isRejectedSize(keyf, entry.getValue())
+                                || readValue(connection, keyf) != null) {
+                            continue;
+                        }
+                        writeSized(connection, keyf, entry.getValue(), liveTime);
+                        restored++;
+                    }
+                    return restored;
+                }
+            }, false);
+            count += restored == null ? 0 : restored;
+        }
+        return count;
+    }
+
+    /**
+     * 结构化缓存Map，存储为redis hash，可以只读写其中的字段
+     *
+     * @param key 缓存key
+     * @return entry
+     */
+    @Override
+    public CacheHashEntry hashEntry(Object key) {
+        return new CacheHashEntry(this, getUkPrfex(key.toString()));
+    }
+
+    /**
+     * 结构化缓存List，存储为redis list，可以按下标读写或在末尾追加元素
+     *
+     * @param key 缓存key
+     * @return entry
+     */
+    @Override
+    public CacheListEntry listEntry(Object key) {
+        return new CacheListEntry(this, getUkPrfex(key.toString()));
+    }
+
+    /**
+     * 删除结构化缓存，Map和List使用相同的redis key
+     *
+     * @param key 缓存key
+     */
+    @Override
+    public void evictStructured(Object key) {
+        if (enable) {
+            final String keyf = getUkPrfex(key.toString());
+            stats.recordEvict();
+            try {
+                execute(keyf, new RedisCallback<Long>() {
+                    @Override
+                    public Long doInRedis(RedisConnection connection) throws DataAccessException {
+                        return CacheRedisCommands.unlink(connection, (keyf + STRUCTURED_SUFFIX).getBytes(StandardCharsets.UTF_8));
+                    }
+                });
+            } catch (RuntimeException e) {
+                handleRedisError("redis cache structured delete error", keyf, e);
+            }
+        }
+    }
+
+    /*结构化缓存访问,与同一key的普通缓存在同一个连接池*/
+    <T> T executeStructured(String keyf, RedisCallback<T> callback) {
+        return execute(keyf, callback);
+    }
+
+    /*结构化缓存访问异常处理*/
+    void handleStructuredError(String message, String keyf, RuntimeException e) {
+        handleRedisError(message, keyf, e);
+    }
+
+    /*结构化缓存元素序列化,null写入空值标记,不写入元数据*/
+    byte[] encodeElement(Object value) {
+        return value == null ? codec.encodeNull() : toByteArray(value, 0, 0L);
+    }
+
+    /*结构化缓存元素反序列化,空值标记返回null*/
+    Object decodeElement(byte[] bytes) {
+        return toObject(bytes);
+    }
+
+    /*结构化缓存存活毫秒数,按过期策略调整,0表示不过期*/
+    long getStructuredLiveMillis() {
+        return timeout > 0 ? getLiveTime(timeout) * 1000L : 0L;
+    }
+
+    /**
+     * 启动写后缓存队列的后台写入，未配置写后缓存时不处理
+     */
+    public void startWriteBehind() {
+        if (writeBehind != null) {
+            writeBehind.start(new Consumer<List<Map.Entry<String, CacheWriteBehindQueue.Write>>>() {
+                @Override
+                public void accept(List<Map.Entry<String, CacheWriteBehindQueue.Write>> writes) {
+                    flushWrites(writes);
+                }
+            });
+        }
+    }
+
+    /**
+     * 停止写后缓存队列，等待队列中的数据写入redis，之后的写入改为同步
+     */
+    public void stopWriteBehind() {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+    }
+
+    /**
+     * 处理其他节点广播的失效消息，仅清除本地一级缓存
+     *
+     * @param op 操作类型
+     * @param key 完整缓存key
+     */
+    public void invalidateLocal(String op, String key) {
+        if (CacheRedisInvalidationListener.OP_CLEAR.equals(op) && CacheClearMode.GENERATION == clearMode) {
+            generationCheckedAt.set(0L);
+        }
+        for (LocalCacheStore store : new LocalCacheStore[]{localCache, hotCache}) {
+            if (store == null) {
+                continue;
+            }
+            if (CacheRedisInvalidationListener.OP_CLEAR.equals(op)) {
+                store.clear();
+            } else {
+                store.evict(key);
+            }
+        }
+    }
+
+    /*当前缓存代数,按间隔从redis刷新*/
+    private long currentGeneration() {
+        long now = System.currentTimeMillis();
+        long checkedAt = generationCheckedAt.get();
+        if ((now - checkedAt >= GENERATION_REFRESH_INTERVAL || generation.get() < 0)
+                && generationCheckedAt.compareAndSet(checkedAt, now)) {
+            try {
+                final byte[] genKey = getGenerationKey();
+                byte[] value = execute(new RedisCallback<byte[]>() {
+                    @Override
+                    public byte[] doInRedis(RedisConnection connection) throws DataAccessException {
+                        return connection.get(genKey);
+                    }
+                });
+                generation.set(value == null ? 0L : Long.parseLong(new String(value, StandardCharsets.UTF_8)));
+            } catch (RuntimeException e) {
+                logRedisError("redis cache refresh generation error", name, e);
+                if (generation.get() < 0) {
+                    generation.set(0L);
+                }
+            }
+        }
+        return Math.max(generation.get(), 0L);
+    }
+
+    /*递增缓存代数,旧代数的数据不再被访问*/
+    private void nextGeneration() {
+        final byte[] genKey = getGenerationKey();
+        Long next = execute(new RedisCallback<Long>() {
+            @Override
+            public Long doInRedis(RedisConnection connection) throws DataAccessException {
+                return connection.incr(genKey);
+            }
+        });
+        if (next != null) {
+            generation.set(next);
+            generationCheckedAt.set(System.currentTimeMillis());
+        }
+    }
+
+    /*缓存代数key*/
+    private byte[] getGenerationKey() {
+        return (keyPrefix + "_fn_" + name + "_" + GENERATION_SUFFIX).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /*本地缓存存活毫秒数,不超过redis缓存存活时间*/
+    private long getLocalLiveMillis() {
+        long live = localTimeout > 0 && (timeout <= 0 || localTimeout < timeout) ? localTimeout : timeout;
+        return live * 1000L;
+    }
+
+    /*读取缓存数据,hash存储结构时已过期的字段返回null*/
+    private byte[] readValue(RedisConnection connection, String keyf) {
+        if (!isHashLayout()) {
+            return connection.get(keyf.getBytes());
+        }
+        byte[][] bucket = getBucket(keyf);
+        return CacheHashBuckets.unwrap(connection.hGet(bucket[0], bucket[1]), System.currentTimeMillis());
+    }
+
+    /*hash存储结构时通过管道批量读取字段*/
+    private List<byte[]> readValues(RedisConnection connection, List<String> keyfs) {
+        connection.openPipeline();
+        for (String keyf : keyfs) {
+            byte[][] bucket = getBucket(keyf);
+            connection.hGet(bucket[0], bucket[1]);
+        }
+        List<Object> raws = connection.closePipeline();
+        long now = System.currentTimeMillis();
+        List<byte[]> values = new ArrayList<byte[]>(keyfs.size());
+        for (int i = 0; i < keyfs.size(); i++) {
+            Object raw = raws != null && i < raws.size() ? raws.get(i) : null;
+            values.add(raw instanceof byte[] ? CacheHashBuckets.unwrap((byte[]) raw, now) : null);
+        }
+        return values;
+    }
+
+    /*写入缓存数据,liveTime为存活秒数,小于等于0时不过期*/
+    private void writeValue(RedisConnection connection, String keyf, byte[] value, long liveTime) {
+        if (!isHashLayout()) {
+            if (liveTime > 0) {
+                connection.setEx(keyf.getBytes(), liveTime, value);
+            } else {
+                connection.set(keyf.getBytes(), value);
+            }
+            return;
+        }
+        byte[][] bucket = getBucket(keyf);
+        long deadline = liveTime > 0 ? System.currentTimeMillis() + liveTime * 1000L : 0L;
+        CacheRedisCommands.hashPut(connection, bucket[0], bucket[1], CacheHashBuckets.wrap(value, deadline), liveTime * 1000L);
+        if (executor != null && ThreadLocalRandom.current().nextInt(HASH_SWEEP_RATE) == 0) {
+            sweepBucket(bucket[0]);
+        }
+    }
+
+    /**
+     * hash存储结构时批量写入，管道中不支持lua脚本，分两次管道提交：
+     * 先读取各桶剩余存活时间，再写入字段并只延长桶的过期时间
+     */
+    private void writeValues(RedisConnection connection, List<Map.Entry<String, byte[]>> batch, Map<String, Long> liveTimes) {
+        long now = System.currentTimeMillis();
+        Map<String, byte[]> bucketKeys = new LinkedHashMap<String, byte[]>();
+        Map<String, Map<byte[], byte[]>> bucketFields = new HashMap<String, Map<byte[], byte[]>>();
+        //桶需要的存活毫秒数,0表示不过期
+        Map<String, Long> bucketMillis = new HashMap<String, Long>();
+        for (Map.Entry<String, byte[]> entry : batch) {
+            byte[][] bucket = getBucket(entry.getKey());
+            String bucketKey = new String(bucket[0], StandardCharsets.UTF_8);
+            long millis = Math.max(liveTimes.get(entry.getKey()), 0L) * 1000L;
+            Map<byte[], byte[]> fields = bucketFields.get(bucketKey);
+            if (fields == null) {
+                fields = new LinkedHashMap<byte[], byte[]>();
+                bucketFields.put(bucketKey, fields);
+                bucketKeys.put(bucketKey, bucket[0]);
+                bucketMillis.put(bucketKey, millis);
+            } else {
+                long current = bucketMillis.get(bucketKey);
+                bucketMillis.put(bucketKey, current <= 0 || millis <= 0 ? 0L : Math.max(current, millis));
+            }
+            fields.put(bucket[1], CacheHashBuckets.wrap(entry.getValue(), millis > 0 ? now + millis : 0L));
+        }
+        connection.openPipeline();
+        for (byte[] bucketKey : bucketKeys.values()) {
+            connection.pTtl(bucketKey);
+        }
+        List<Object> ttls = connection.closePipeline();
+        connection.openPipeline();
+        int i = 0;
+        for (Map.Entry<String, byte[]> bucket : bucketKeys.entrySet()) {
+            Object ttl = ttls != null && i < ttls.size() ? ttls.get(i) : null;
+            i++;
+            long current = ttl instanceof Long ? (Long) ttl : -2L;
+            long millis = bucketMillis.get(bucket.getKey());
+            connection.hMSet(bucket.getValue(), bucketFields.get(bucket.getKey()));
+            if (millis <= 0) {
+                connection.persist(bucket.getValue());
+            } else if (current == -2L || (current >= 0 && current < millis)) {
+                connection.pExpire(bucket.getValue(), millis);
+            }
+        }
+        for (Map.Entry<String, byte[]> entry : batch) {
+            publish(connection, CacheRedisInvalidationListener.OP_PUT, entry.getKey());
+        }
+        connection.closePipeline();
+        if (executor != null) {
+            for (byte[] bucketKey : bucketKeys.values()) {
+                if (ThreadLocalRandom.current().nextInt(HASH_SWEEP_RATE) == 0) {
+                    sweepBucket(bucketKey);
+                }
+            }
+        }
+    }
+
+    /*删除缓存数据*/
+    private Long deleteValue(RedisConnection connection, String keyf) {
+        if (CacheOversizeMode.CHUNK == oversizeMode) {
+            deleteChunks(connection, keyf, readValue(connection, keyf));
+        }
+        if (!isHashLayout()) {
+            return CacheRedisCommands.unlink(connection, keyf.getBytes());
+        }
+        byte[][] bucket = getBucket(keyf);
+        return connection.hDel(bucket[0], bucket[1]);
+    }
+
+    /*后台删除桶中已过期的字段,桶中字段的过期时间不同,依靠桶过期无法及时释放*/
+    private void sweepBucket(final byte[] bucketKey) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        invoke(route(new String(bucketKey, StandardCharsets.UTF_8)), new RedisCallback<Long>() {
+                            @Override
+                            public Long doInRedis(RedisConnection connection) throws DataAccessException {
+                                Map<byte[], byte[]> fields = connection.hGetAll(bucketKey);
+                                if (fields == null || fields.isEmpty()) {
+                                    return 0L;
+                                }
+                                long now = System.currentTimeMillis();
+                                List<byte[]> expired = new ArrayList<byte[]>();
+                                for (Map.Entry<byte[], byte[]> field : fields.entrySet()) {
+                                    if (CacheHashBuckets.isExpired(field.getValue(), now)) {
+                                        expired.add(field.getKey());
+                                    }
+                                }
+                                return expired.isEmpty() ? 0L : connection.hDel(bucketKey, expired.toArray(new byte[expired.size()][]));
+                            }
+                        }, false);
+                    } catch (RuntimeException e) {
+                        logRedisError("redis cache sweep bucket error", new String(bucketKey, StandardCharsets.UTF_8), e);
+                    }
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.debug("redis cache sweep bucket rejected:{}", name);
+        }
+    }
+
+    /*是否超过最大字节数*/
+    private boolean isOversize(byte[] valueb) {
+        return valueb != null && maxValueSize > 0 && valueb.length > maxValueSize;
+    }
+
+    /*超过最大字节数且不分块写入时,计数并记录警告日志*/
+    private boolean isRejectedSize(String keyf, byte[] valueb) {
+        if (!isOversize(valueb) || (CacheOversizeMode.CHUNK == oversizeMode && chunkSize > 0)) {
+            return false;
+        }
+        stats.recordOversizeSkip();
+        log.warn("redis cache value too large, skip key:{},bytes:{},max:{}", keyf, valueb.length, maxValueSize);
+        return true;
+    }
+
+    /*是否可以直接写入,分块写入模式下需要先读取上一版本的分块信息,不能通过管道直接覆盖*/
+    private boolean isDirectWrite(byte[] valueb) {
+        return !isOversize(valueb) && CacheOversizeMode.CHUNK != oversizeMode;
+    }
+
+    /*按大小写入,valueb为null时删除已有数据,超过最大字节数时分块写入,覆盖分块数据时删除上一版本的分块*/
+    private void writeSized(RedisConnection connection, String keyf, byte[] valueb, long liveTime) {
+        if (valueb == null) {
+            deleteValue(connection, keyf);
+        } else if (isOversize(valueb)) {
+            writeChunks(connection, keyf, valueb, liveTime);
+        } else if (CacheOversizeMode.CHUNK == oversizeMode) {
+            byte[] previous = readValue(connection, keyf);
+            writeValue(connection, keyf, valueb, liveTime);
+            deleteChunks(connection, keyf, previous);
+        } else {
+            writeValue(connection, keyf, valueb, liveTime);
+        }
+    }
+
+    /**
+     * 分块写入，先通过管道写入全部分块，再写入分块信息，最后删除上一版本的分块
+     * 分块比分块信息多存活1秒，读取到分块信息时分块一定存在
+     */
+    private void writeChunks(RedisConnection connection, String keyf, byte[] valueb, long liveTime) {
+        byte[] previous = readValue(connection, keyf);
+        long version = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+        int count = (valueb.length + chunkSize - 1) / chunkSize;
+        connection.openPipeline();
+        for (int i = 0; i < count; i++) {
+            byte[] chunk = Arrays.copyOfRange(valueb, i * chunkSize, Math.min(valueb.length, (i + 1) * chunkSize));
+            if (liveTime > 0) {
+                connection.setEx(CacheValueChunks.chunkKey(keyf, version, i), liveTime + 1, chunk);
+            } else {
+                connection.set(CacheValueChunks.chunkKey(keyf, version, i), chunk);
+            }
+        }
+        connection.closePipeline();
+        writeValue(connection, keyf, CacheValueChunks.manifest(count, valueb.length, version), liveTime);
+        deleteChunks(connection, keyf, previous);
+        stats.recordChunkedPut();
+    }
+
+    /*删除分块信息对应的分块*/
+    private void deleteChunks(RedisConnection connection, String keyf, byte[] manifest) {
+        if (CacheValueChunks.isManifest(manifest)) {
+            CacheRedisCommands.unlink(connection, CacheValueChunks.chunkKeys(keyf, manifest));
+        }
+    }
+
+    /*读取到分块信息时通过管道取回全部分块,任一分块缺失时按未命中处理*/
+    private byte[] resolveChunks(RedisConnection connection, String keyf, byte[] value) {
+        if (!CacheValueChunks.isManifest(value)) {
+            return value;
+        }
+        connection.openPipeline();
+        for (byte[] chunkKey : CacheValueChunks.chunkKeys(keyf, value)) {
+            connection.get(chunkKey);
+        }
+        List<Object> chunks = connection.closePipeline();
+        int length = CacheValueChunks.length(value);
+        if (chunks == null || chunks.size() != CacheValueChunks.count(value)) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        for (Object chunk : chunks) {
+            if (!(chunk instanceof byte[]) || offset + ((byte[]) chunk).length > length) {
+                return null;
+            }
+            System.arraycopy((byte[]) chunk, 0, bytes, offset, ((byte[]) chunk).length);
+            offset += ((byte[]) chunk).length;
+        }
+        return offset == length ? bytes : null;
+    }
+
+    /*批量读取结果中的分块信息还原为数据*/
+    private List<byte[]> resolveChunks(RedisConnection connection, List<String> keyfs, List<byte[]> values) {
+        if (values == null) {
+            return null;
+        }
+        List<byte[]> resolved = new ArrayList<byte[]>(values);
+        for (int i = 0; i < resolved.size() && i < keyfs.size(); i++) {
+            resolved.set(i, resolveChunks(connection, keyfs.get(i), resolved.get(i)));
+        }
+        return resolved;
+    }
+
+    /*放入写后缓存队列,未配置、未启动或者队列已满时返回false*/
+    private boolean offerWrite(String keyf, byte[] valueb, long liveTime) {
+        return writeBehind != null && writeBehind.offer(keyf, valueb, liveTime);
+    }
+
+    /**
+     * 写后缓存队列批量写入redis，配置分片时按连接池分组写入，任一连接池异常时抛出由队列整批重试
+     */
+    private void flushWrites(List<Map.Entry<String, CacheWriteBehindQueue.Write>> writes) {
+        for (Map.Entry<RedisTemplate, List<Map.Entry<String, CacheWriteBehindQueue.Write>>> group : groupByShard(writes).entrySet()) {
+            flushWrites(group.getKey(), group.getValue());
+        }
+    }
+
+    /**
+     * 一个连接池的批量写入，普通数据与putAll相同通过管道提交
+     * 删除和超过大小限制的数据在同一连接上逐个执行，异常时抛出由队列重试
+     */
+    private void flushWrites(RedisTemplate template, List<Map.Entry<String, CacheWriteBehindQueue.Write>> writes) {
+        final List<Map.Entry<String, byte[]>> puts = new ArrayList<Map.Entry<String, byte[]>>();
+        final Map<String, Long> liveTimes = new HashMap<String, Long>();
+        final List<Map.Entry<String, CacheWriteBehindQueue.Write>> others = new ArrayList<Map.Entry<String, CacheWriteBehindQueue.Write>>();
+        for (Map.Entry<String, CacheWriteBehindQueue.Write> write : writes) {
+            byte[] valueb = write.getValue().getValue();
+            if (valueb != null && isDirectWrite(valueb)) {
+                puts.add(new AbstractMap.SimpleImmutableEntry<String, byte[]>(write.getKey(), valueb));
+                liveTimes.put(write.getKey(), write.getValue().getLiveTime());
+            } else {
+                others.add(write);
+            }
+        }
+        try {
+            invoke(template, new RedisCallback<Object>() {
+                @Override
+                public Object doInRedis(RedisConnection connection) throws DataAccessException {
+                    if (!puts.isEmpty() && isHashLayout()) {
+                        writeValues(connection, puts, liveTimes);
+                    } else if (!puts.isEmpty()) {
+                        connection.openPipeline();
+                        for (Map.Entry<String, byte[]> entry : puts) {
+                            writeValue(connection, entry.getKey(), entry.getValue(), liveTimes.get(entry.getKey()));
+                            publish(connection, CacheRedisInvalidationListener.OP_PUT, entry.getKey());
+                        }
+                        connection.closePipeline();
+                    }
+                    for (Map.Entry<String, CacheWriteBehindQueue.Write> write : others) {
+                        byte[] valueb = write.getValue().getValue();
+                        writeSized(connection, write.getKey(), valueb, write.getValue().getLiveTime());
+                        publish(connection, valueb == null ? CacheRedisInvalidationListener.OP_EVICT : CacheRedisInvalidationListener.OP_PUT, write.getKey());
+                    }
+                    return null;
+                }
+            }, false);
+        } catch (RuntimeException e) {
+            stats.recordError();
+            throw e;
+        }
+    }
+
+    /*是否使用hash存储结构*/
+    private boolean isHashLayout() {
+        return CacheStorageLayout.HASH == layout && hashBuckets > 0;
+    }
+
+    /*
+     * hash存储结构时的桶key和字段,字段为去掉缓存名称前缀后的key;
+     * generation方式时代数放在桶key中,清空后旧代数的桶整体不再访问,依靠桶过期释放
+     */
+    private byte[][] getBucket(String keyf) {
+        String base = keyPrefix + "_fn_" + name + "_";
+        String field = keyf.startsWith(base) ? keyf.substring(base.length()) : keyf;
+        if (CacheClearMode.GENERATION == clearMode) {
+            int end = generationEnd(field);
+            if (end > 0) {
+                base = base + field.substring(0, end);
+                field = field.substring(end);
+            }
+        }
+        String bucketKey = base + CacheHashBuckets.BUCKET_INFIX + CacheHashBuckets.bucket(field, hashBuckets);
+        return new byte[][]{bucketKey.getBytes(StandardCharsets.UTF_8), field.getBytes(StandardCharsets.UTF_8)};
+    }
+
+    /*key开头g+代数+下划线部分的长度,不是代数前缀时返回0*/
+    private static int generationEnd(String field) {
+        if (field.length() < 3 || field.charAt(0) != 'g') {
+            return 0;
+        }
+        int i = 1;
+        while (i < field.length() && Character.isDigit(field.charAt(i))) {
+            i++;
+        }
+        return i > 1 && i < field.length() && field.charAt(i) == '_' ? i + 1 : 0;
+    }
+
+    /*在已有连接上广播本地缓存失效消息*/
+    private void publish(RedisConnection connection, String op, String key) {
+        if (isBroadcast(op)) {
+            connection.publish(channel.getBytes(StandardCharsets.UTF_8), CacheRedisInvalidationListener.message(name, op, key));
+        }
+    }
+
+    /*是否需要广播,开启本地缓存、热点key副本或者generation方式清空时广播*/
+    private boolean isBroadcast(String op) {
+        return channel != null && (localCache != null || hotCache != null
+                || (CacheRedisInvalidationListener.OP_CLEAR.equals(op) && CacheClearMode.GENERATION == clearMode));
+    }
+
+    /*广播本地缓存失效消息*/
+    private void broadcast(final String op, final String key) {
+        if (!isBroadcast(op)) {
+            return;
+        }
+        try {
+            execute(new RedisCallback<Long>() {
+                @Override
+                public Long doInRedis(RedisConnection connection) throws DataAccessException {
+                    publish(connection, op, key);
+                    return 1L;
+                }
+            });
+        } catch (RuntimeException e) {
+            handleRedisError("redis cache broadcast error", key, e);
+        }
+    }
+
+    /**
+     * 访问redis，配置熔断器时记录调用结果，熔断打开期间直接抛出CacheRedisBreakerOpenException
+     */
+    private <T> T execute(RedisCallback<T> callback) {
+        return (T) invoke(redisTemplate, callback, false);
+    }
+
+    /*访问key所在的连接池*/
+    private <T> T execute(String keyf, RedisCallback<T> callback) {
+        return (T) invoke(getTemplate(keyf), callback, false);
+    }
+
+    /**
+     * 只读访问，配置副本读取时按读取方式选择节点，副本异常时回退主节点
+     * 副本访问不经过熔断器，副本异常不影响主节点的熔断统计；配置分片时读取key所在的连接池
+     */
+    private <T> T executeRead(String keyf, RedisCallback<T> callback) {
+        if (shards != null) {
+            return execute(keyf, callback);
+        }
+        return executeRead(callback);
+    }
+
+    private <T> T executeRead(RedisCallback<T> callback) {
+        CacheReadRouter.Node node = readRouter != null ? readRouter.select(readFrom) : null;
+        long start = System.nanoTime();
+        if (node == null || node == readRouter.getMaster()) {
+            T result = execute(callback);
+            if (node != null) {
+                node.recordLatency(System.nanoTime() - start);
+            }
+            return result;
+        }
+        try {
+            T result = (T) node.getTemplate().execute(callback);
+            long nanos = System.nanoTime() - start;
+            node.recordLatency(nanos);
+            stats.recordRedis(nanos);
+            stats.recordReplicaRead();
+            return result;
+        } catch (RuntimeException e) {
+            readRouter.markDown(node, e);
+            stats.recordReplicaFallback();
+            return execute(callback);
+        }
+    }
+
+    /*管道方式访问key所在的连接池*/
+    private List<Object> executePipelined(String keyf, RedisCallback<?> callback) {
+        return (List<Object>) invoke(getTemplate(keyf), callback, true);
+    }
+
+    private Object invoke(RedisTemplate template, RedisCallback<?> callback, boolean pipelined) {
+        if (breaker != null && !breaker.allowRequest()) {
+            throw new CacheRedisBreakerOpenException(name);
+        }
+        long start = System.nanoTime();
+        try {
+            Object result = pipelined ? template.executePipelined(callback) : template.execute(callback);
+            long nanos = System.nanoTime() - start;
+            stats.recordRedis(nanos);
+            if (breaker != null) {
+                breaker.onSuccess(nanos);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            if (breaker != null) {
+                breaker.onError(System.nanoTime() - start);
+            }
+            throw e;
+        }
+    }
+
+    /*批量读取,配置分片时按连接池分组读取后按原顺序合并*/
+    private List<byte[]> multiGet(final List<String> keyfs) {
+        if (shards == null) {
+            return executeRead(multiGetCallback(keyfs));
+        }
+        List<Map.Entry<String, Integer>> indexes = new ArrayList<Map.Entry<String, Integer>>(keyfs.size());
+        for (int i = 0; i < keyfs.size(); i++) {
+            indexes.add(new AbstractMap.SimpleImmutableEntry<String, Integer>(keyfs.get(i), i));
+        }
+        byte[][] values = new byte[keyfs.size()][];
+        for (Map.Entry<RedisTemplate, List<Map.Entry<String, Integer>>> group : groupByShard(indexes).entrySet()) {
+            List<String> part = new ArrayList<String>(group.getValue().size());
+            for (Map.Entry<String, Integer> index : group.getValue()) {
+                part.add(index.getKey());
+            }
+            List<byte[]> partValues = (List<byte[]>) invoke(group.getKey(), multiGetCallback(part), false);
+            for (int i = 0; partValues != null && i < partValues.size(); i++) {
+                values[group.getValue().get(i).getValue()] = partValues.get(i);
+            }
+        }
+        return Arrays.asList(values);
+    }
+
+    /*同一连接池内批量读取*/
+    private RedisCallback<List<byte[]>> multiGetCallback(final List<String> keyfs) {
+        return new RedisCallback<List<byte[]>>() {
+            @Override
+            public List<byte[]> doInRedis(RedisConnection connection) throws DataAccessException {
+                if (isHashLayout()) {
+                    return resolveChunks(connection, keyfs, readValues(connection, keyfs));
+                }
+                byte[][] rawKeys = new byte[keyfs.size()][];
+                for (int i = 0; i < rawKeys.length; i++) {
+                    rawKeys[i] = keyfs.get(i).getBytes();
+                }
+                return resolveChunks(connection, keyfs, connection.mGet(rawKeys));
+            }
+        };
+    }
+
+    /*key所在连接池的访问模板,hash存储结构时按桶key分片,同一个桶只在一个连接池中*/
+    private RedisTemplate getTemplate(String keyf) {
+        if (shards == null) {
+            return redisTemplate;
+        }
+        return route(isHashLayout() ? new String(getBucket(keyf)[0], StandardCharsets.UTF_8) : keyf);
+    }
+
+    /*按redis中实际的key选择连接池*/
+    private RedisTemplate route(String redisKey) {
+        return shards == null ? redisTemplate : shards.get(redisKey).getTemplate();
+    }
+
+    /*全部连接池的访问模板,未配置分片时只有redisTemplate*/
+    private List<RedisTemplate> getTemplates() {
+        if (shards == null) {
+            return Collections.singletonList(redisTemplate);
+        }
+        List<RedisTemplate> templates = new ArrayList<RedisTemplate>(shards.getPools().size());
+        for (CacheRedisPool pool : shards.getPools()) {
+            templates.add(pool.getTemplate());
+        }
+        return templates;
+    }
+
+    /*按key所在连接池分组,组内保持原顺序,未配置分片时只有一组*/
+    private <V> Map<RedisTemplate, List<Map.Entry<String, V>>> groupByShard(Collection<Map.Entry<String, V>> entries) {
+        Map<RedisTemplate, List<Map.Entry<String, V>>> groups = new LinkedHashMap<RedisTemplate, List<Map.Entry<String, V>>>();
+        if (shards == null) {
+            groups.put(redisTemplate, new ArrayList<Map.Entry<String, V>>(entries));
+            return groups;
+        }
+        for (Map.Entry<String, V> entry : entries) {
+            RedisTemplate template = getTemplate(entry.getKey());
+            List<Map.Entry<String, V>> group = groups.get(template);
+            if (group == null) {
+                group = new ArrayList<Map.Entry<String, V>>();
+                groups.put(template, group);
+            }
+            group.add(entry);
+        }
+        return groups;
+    }
+
+    /*按key所在连接池分组,组内保持原顺序*/
+    private Map<RedisTemplate, List<String>> groupKeysByShard(Collection<String> keyfs) {
+        Map<RedisTemplate, List<String>> groups = new LinkedHashMap<RedisTemplate, List<String>>();
+        if (shards == null) {
+            groups.put(redisTemplate, new ArrayList<String>(keyfs));
+            return groups;
+        }
+        for (String keyf : keyfs) {
+            RedisTemplate template = getTemplate(keyf);
+            List<String> group = groups.get(template);
+            if (group == null) {
+                group = new ArrayList<String>();
+                groups.put(template, group);
+            }
+            group.add(keyf);
+        }
+        return groups;
+    }
+
+    /*redis异常处理,未配置熔断器时抛出,否则记录日志后降级*/
+    private void handleRedisError(String message, Object key, RuntimeException e) {
+        if (breaker == null) {
+            stats.recordError();
+            throw e;
+        }
+        logRedisError(message, key, e);
+    }
+
+    /*记录redis异常,熔断打开时的快速失败只记录debug日志*/
+    private void logRedisError(String message, Object key, RuntimeException e) {
+        stats.recordError();
+        if (e instanceof CacheRedisBreakerOpenException) {
+            log.debug("{} key:{},breaker open", message, key);
+        } else {
+            log.error("{} key:{},error:", message, key, e);
+        }
+    }
+
+    /*布隆过滤器判定一定不存在*/
+    private boolean isRejected(Object key) {
+        if (bloomFilter == null) {
+            return false;
+        }
+        if (bloomFilter.mightContain(key.toString())) {
+            penetrationStats.recordBloomPass();
+            return false;
+        }
+        penetrationStats.recordBloomReject();
+        return true;
+    }
+
+    /*本地缓存命中计数*/
+    private void recordLocalHit(ValueWrapper local) {
+        stats.recordHit(true);
+        if (local.get() == null) {
+            penetrationStats.recordNullHit();
+        }
+    }
+
+    /*空值缓存本地存活毫秒数*/
+    private long getNullLiveMillis() {
+        return Math.min(getLocalLiveMillis(), nullTimeout * 1000L);
+    }
+
+    /*本地一级缓存未命中时计入热点统计,热点key读取本地副本*/
+    private ValueWrapper getHotLocal(String keyf) {
+        if (hotKeyDetector == null || hotCache == null || !hotKeyDetector.record(keyf)) {
+            return null;
+        }
+        ValueWrapper hot = hotCache.get(keyf);
+        if (hot != null) {
+            hotKeyDetector.recordHit();
+        }
+        return hot;
+    }
+
+    /*热点key写入本地副本,存活时间不超过redis缓存存活时间*/
+    private void putHotLocal(String keyf, Object value, boolean nullValue) {
+        if (hotCache == null || hotKeyDetector == null || !hotKeyDetector.isHot(keyf)) {
+            return;
+        }
+        long live = hotTimeout;
+        if (timeout > 0) {
+            live = Math.min(live, timeout * 1000L);
+        }
+        if (nullValue) {
+            live = Math.min(live, nullTimeout * 1000L);
+        }
+        if (live > 0) {
+            hotCache.put(keyf, value, live);
+        }
+    }
+
+    /*redis不可用时读取本地保留的旧数据*/
+    private ValueWrapper getStaleLocal(String keyf) {
+        return localCache != null && breaker != null ? localCache.getStale(keyf) : null;
+    }
+
+    /*是否已软过期*/
+    private boolean isStale(CacheValueEntry entry) {
+        return staleTimeout > 0 && entry.hasMeta() && entry.getExpireAt() > 0
+                && System.currentTimeMillis() >= entry.getExpireAt();
+    }
+
+    /*本次写入的存活秒数,按过期策略调整*/
+    private long getLiveTime(long ttl) {
+        return expiryPolicy != null ? expiryPolicy.apply(ttl) : ttl;
+    }
+
+    /*redis存活秒数,开启过期保留时为存活时间+保留时间*/
+    private long getRedisLiveTime(long softTime) {
+        return softTime > 0 && staleTimeout > 0 ? softTime + staleTimeout : softTime;
+    }
+
+    /*保证生成的key唯一前缀,generation方式时前缀带有缓存代数*/
+    private String getUkPrfex(String key) {
+        String keySpace = CacheClearMode.GENERATION == clearMode
+                ? keyPrefix + "_fn_" + name + "_g" + currentGeneration() + "_"
+                : keyPrefix + "_fn_" + name + "_";
+        return key.startsWith(keySpace) ? key : (keySpace + key);
+    }
+
+    /*判断对象是否为空*/
+    private boolean isEmpty(Object obj) {
+        return obj == null || obj.toString().trim().equals("") || obj.toString().trim().length() == 0;
+    }
+
+    /**
+     * 对象转换字节流，开启提前刷新或过期保留时写入元数据
+     *
+     * @param obj
+     * @param computeMillis 加载耗时
+     * @param liveTime 本次存活秒数
+     * @return bytes
+     */
+    private byte[] toByteArray(Object obj, int computeMillis, long liveTime) {
+        byte[] bytes = null;
+        long start = System.nanoTime();
+        try {
+            if ((refreshAhead || staleTimeout > 0) && liveTime > 0) {
+                long now = System.currentTimeMillis();
+                bytes = codec.encode(new CacheValueEntry(obj, now, now + liveTime * 1000L, computeMillis));
+            } else {
+                bytes = codec.encode(obj);
+            }
+            if (bytes != null) {
+                stats.recordSerialize(System.nanoTime() - start, bytes.length);
+            }
+        } catch (SerializationException ex) {
+            log.error("redis cache convent object to byteArray error object:{},error：", obj, ex);
+        }
+        return bytes;
+    }
+
+    /**
+     * 字节流转换对象
+     *
+     * @param bytes
+     * @return obj
+     */
+    private Object toObject(byte[] bytes) {
+        CacheValueEntry entry = toEntry(bytes);
+        return entry == null ? null : entry.getValue();
+    }
+
+    /**
+     * 字节流转换对象及元数据
+     *
+     * @param bytes
+     * @return entry
+     */
+    private CacheValueEntry toEntry(byte[] bytes) {
+        CacheValueEntry entry = null;
+        long start = System.nanoTime();
+        try {
+            entry = codec.decodeEntry(bytes);
+            stats.recordDeserialize(System.nanoTime() - start, bytes.length);
+        } catch (SerializationException ex) {
+            log.error("redis cache convent byteArray to object error bytes:{},error：", bytes.length, ex);
+        }
+        return entry;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,179 @@
+package com.shinho.support.cache.redis.repository;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author 傅为地
+ * 单项缓存访问统计，用于评估缓存命中率和调整存活时间
+ * 命中包含本地一级缓存、热点副本和空值缓存命中；布隆过滤器拒绝只计入CachePenetrationStats
+ */
+public class CacheRedisStats {
+
+    //命中次数
+    private final LongAdder hitCount = new LongAdder();
+
+    //其中本地一级缓存及热点副本命中次数
+    private final LongAdder localHitCount = new LongAdder();
+
+    //未命中次数
+    private final LongAdder missCount = new LongAdder();
+
+    //写入次数
+    private final LongAdder putCount = new LongAdder();
+
+    //清除次数
+    private final LongAdder evictCount = new LongAdder();
+
+    //redis访问异常次数,包含熔断打开时的快速失败
+    private final LongAdder errorCount = new LongAdder();
+
+    //超过最大字节数未写入次数
+    private final LongAdder oversizeSkipCount = new LongAdder();
+
+    //分块写入次数
+    private final LongAdder chunkedPutCount = new LongAdder();
+
+    //从副本读取次数
+    private final LongAdder replicaReadCount = new LongAdder();
+
+    //副本读取异常回退主节点次数
+    private final LongAdder replicaFallbackCount = new LongAdder();
+
+    //redis往返耗时(纳秒)
+    private final CacheHistogram redisNanos = new CacheHistogram();
+
+    //序列化耗时(纳秒)
+    private final CacheHistogram serializeNanos = new CacheHistogram();
+
+    //反序列化耗时(纳秒)
+    private final CacheHistogram deserializeNanos = new CacheHistogram();
+
+    //写入数据字节数
+    private final CacheHistogram writeBytes = new CacheHistogram();
+
+    //读取数据字节数
+    private final CacheHistogram readBytes = new CacheHistogram();
+
+    void recordHit(boolean local) {
+        hitCount.increment();
+        if (local) {
+            localHitCount.increment();
+        }
+    }
+
+    void recordMiss() {
+        missCount.increment();
+    }
+
+    void recordPut() {
+        putCount.increment();
+    }
+
+    void recordEvict() {
+        evictCount.increment();
+    }
+
+    void recordError() {
+        errorCount.increment();
+    }
+
+    void recordOversizeSkip() {
+        oversizeSkipCount.increment();
+    }
+
+    void recordChunkedPut() {
+        chunkedPutCount.increment();
+    }
+
+    void recordReplicaRead() {
+        replicaReadCount.increment();
+    }
+
+    void recordReplicaFallback() {
+        replicaFallbackCount.increment();
+    }
+
+    void recordRedis(long nanos) {
+        redisNanos.record(nanos);
+    }
+
+    void recordSerialize(long nanos, int bytes) {
+        serializeNanos.record(nanos);
+        writeBytes.record(bytes);
+    }
+
+    void recordDeserialize(long nanos, int bytes) {
+        deserializeNanos.record(nanos);
+        readBytes.record(bytes);
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getLocalHitCount() {
+        return localHitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * 命中率
+     * @return 0-1，没有读取时为0
+     */
+    public double getHitRate() {
+        long hit = hitCount.sum();
+        long total = hit + missCount.sum();
+        return total == 0 ? 0.0 : (double) hit / total;
+    }
+
+    public long getPutCount() {
+        return putCount.sum();
+    }
+
+    public long getEvictCount() {
+        return evictCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public long getOversizeSkipCount() {
+        return oversizeSkipCount.sum();
+    }
+
+    public long getChunkedPutCount() {
+        return chunkedPutCount.sum();
+    }
+
+    public long getReplicaReadCount() {
+        return replicaReadCount.sum();
+    }
+
+    public long getReplicaFallbackCount() {
+        return replicaFallbackCount.sum();
+    }
+
+    public CacheHistogram getRedisNanos() {
+        return redisNanos;
+    }
+
+    public CacheHistogram getSerializeNanos() {
+        return serializeNanos;
+    }
+
+    public CacheHistogram getDeserializeNanos() {
+        return deserializeNanos;
+    }
+
+    public CacheHistogram getWriteBytes() {
+        return writeBytes;
+    }
+
+    public CacheHistogram getReadBytes() {
+        return readBytes;
+    }
+}
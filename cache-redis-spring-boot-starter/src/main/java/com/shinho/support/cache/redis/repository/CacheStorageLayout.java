@@ -0,0 +1,14 @@
+package com.shinho.support.cache.redis.repository;
+
+/**
+ * @author 傅为地
+ * 缓存数据在redis中的存储结构
+ */
+public enum CacheStorageLayout {
+
+    /** 每个缓存key一个字符串，使用redis过期时间*/
+    STRING,
+
+    /** 按key哈希分桶存入hash，小hash使用ziplist/listpack紧凑编码，字段过期时间记录在值中，桶按最长存活时间过期*/
+    HASH
+}
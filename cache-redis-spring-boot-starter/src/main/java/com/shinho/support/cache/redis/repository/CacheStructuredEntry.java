@@ -0,0 +1,124 @@
+package com.shinho.support.cache.redis.repository;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * @author 傅为地
+ * 结构化缓存，一个缓存key对应一个redis hash或list，元素按单项缓存的序列化方式单独序列化
+ * 读写单个元素时只传输和(反)序列化该元素，大集合修改一个元素不需要重写整个缓存
+ * 整体写入时先写入临时key再RENAME，读取方不会读到写入一半的数据；修改元素只在缓存已存在时生效，
+ * 缓存未加载或已过期时忽略，下次读取时整体加载，避免只有部分元素的缓存被当作完整数据
+ * 修改元素不延长存活时间，到期后整体重新加载；不使用本地一级缓存
+ */
+public abstract class CacheStructuredEntry {
+
+    //整体写入时临时key后缀
+    private static final String TMP_SUFFIX = "_tmp_";
+
+    //整体写入时每条命令最多元素数量
+    static final int WRITE_BATCH_SIZE = 500;
+
+    final CacheRedisRepository cache;
+
+    //完整缓存key
+    final String keyf;
+
+    //redis中的key
+    final byte[] rawKey;
+
+    CacheStructuredEntry(CacheRedisRepository cache, String keyf) {
+        this.cache = cache;
+        this.keyf = keyf;
+        this.rawKey = (keyf + CacheRedisRepository.STRUCTURED_SUFFIX).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 完整缓存key
+     * @return keyf
+     */
+    public String getKey() {
+        return keyf;
+    }
+
+    /**
+     * 缓存是否已加载
+     * @return boolean
+     */
+    public boolean exists() {
+        return execute("redis cache structured exists error", Boolean.FALSE, new RedisCallback<Boolean>() {
+            @Override
+            public Boolean doInRedis(RedisConnection connection) throws DataAccessException {
+                return connection.exists(rawKey);
+            }
+        });
+    }
+
+    /**
+     * 元素数量
+     * @return 缓存不存在时返回0
+     */
+    public abstract long size();
+
+    /**
+     * 删除整个缓存
+     */
+    public void delete() {
+        cache.getStats().recordEvict();
+        execute("redis cache structured delete error", null, new RedisCallback<Long>() {
+            @Override
+            public Long doInRedis(RedisConnection connection) throws DataAccessException {
+                return CacheRedisCommands.unlink(connection, rawKey);
+            }
+        });
+    }
+
+    /*访问缓存key所在的连接池,未开启缓存时返回默认值,异常时未配置熔断器抛出,否则返回默认值*/
+    <T> T execute(String message, T fallback, RedisCallback<T> callback) {
+        if (!cache.isEnable()) {
+            return fallback;
+        }
+        try {
+            T result = cache.executeStructured(keyf, callback);
+            return result == null ? fallback : result;
+        } catch (RuntimeException e) {
+            cache.handleStructuredError(message, keyf, e);
+            return fallback;
+        }
+    }
+
+    /*整体替换,通过管道写入临时key并设置存活时间后RENAME,一次往返*/
+    void replace(final BiConsumer<RedisConnection, byte[]> writer) {
+        cache.getStats().recordPut();
+        final byte[] tmpKey = (keyf + CacheRedisRepository.STRUCTURED_SUFFIX + TMP_SUFFIX + UUID.randomUUID())
+                .getBytes(StandardCharsets.UTF_8);
+        final long liveMillis = cache.getStructuredLiveMillis();
+        execute("redis cache structured load error", null, new RedisCallback<Object>() {
+            @Override
+            public Object doInRedis(RedisConnection connection) throws DataAccessException {
+                connection.openPipeline();
+                writer.accept(connection, tmpKey);
+                if (liveMillis > 0) {
+                    connection.pExpire(tmpKey, liveMillis);
+                }
+                connection.rename(tmpKey, rawKey);
+                connection.closePipeline();
+                return null;
+            }
+        });
+    }
+
+    /*序列化元素,失败时抛出,避免写入不完整的缓存*/
+    byte[] encode(Object value) {
+        byte[] bytes = cache.encodeElement(value);
+        if (bytes == null) {
+            throw new IllegalArgumentException("redis cache structured element serialize error, key:" + keyf);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,98 @@
+package com.shinho.support.cache.redis.repository;
+
+import com.shinho.support.cache.redis.serializer.CacheValueCodec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author 傅为地
+ * 超大缓存数据分块存储辅助方法
+ * 原key保存分块信息：[数据头3字节][分块数4字节][总字节数4字节][版本8字节]，
+ * 分块key为原key+"_ck"+版本+"_"+序号，版本不同的分块不会混合读取
+ */
+final class CacheValueChunks {
+
+    //分块信息字节数
+    static final int MANIFEST_LENGTH = CacheValueCodec.HEADER_LENGTH + 16;
+
+    private CacheValueChunks() {
+    }
+
+    /**
+     * 生成分块信息
+     * @param count 分块数
+     * @param length 总字节数
+     * @param version 版本
+     * @return bytes
+     */
+    static byte[] manifest(int count, int length, long version) {
+        byte[] bytes = new byte[MANIFEST_LENGTH];
+        bytes[0] = CacheValueCodec.MAGIC;
+        bytes[2] = (byte) CacheValueCodec.FLAG_CHUNKED;
+        writeInt(bytes, 3, count);
+        writeInt(bytes, 7, length);
+        writeInt(bytes, 11, (int) (version >>> 32));
+        writeInt(bytes, 15, (int) version);
+        return bytes;
+    }
+
+    /**
+     * 是否为分块信息
+     * @param value 缓存数据
+     * @return boolean
+     */
+    static boolean isManifest(byte[] value) {
+        return value != null && value.length == MANIFEST_LENGTH && value[0] == CacheValueCodec.MAGIC
+                && (value[2] & CacheValueCodec.FLAG_CHUNKED) != 0;
+    }
+
+    static int count(byte[] manifest) {
+        return readInt(manifest, 3);
+    }
+
+    static int length(byte[] manifest) {
+        return readInt(manifest, 7);
+    }
+
+    static long version(byte[] manifest) {
+        return ((long) readInt(manifest, 11) << 32) | (readInt(manifest, 15) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 分块key
+     * @param keyf 完整缓存key
+     * @param version 版本
+     * @param index 序号
+     * @return bytes
+     */
+    static byte[] chunkKey(String keyf, long version, int index) {
+        return (keyf + "_ck" + Long.toHexString(version) + "_" + index).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 全部分块key
+     * @param keyf 完整缓存key
+     * @param manifest 分块信息
+     * @return keys
+     */
+    static byte[][] chunkKeys(String keyf, byte[] manifest) {
+        byte[][] keys = new byte[count(manifest)][];
+        long version = version(manifest);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = chunkKey(keyf, version, i);
+        }
+        return keys;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,365 @@
+package com.shinho.support.cache.redis.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * @author 傅为地
+ * 写后缓存队列，put/evict先进入本节点内存队列，后台线程按数量或时间分批通过管道写入redis
+ * 持久性：进入队列即返回，进程异常退出时队列中未写入的数据丢失；正常停止时写完队列后退出，超时后丢弃剩余数据
+ * 顺序：同一key只保留最后一次写入，同一key在本节点的写入按先后顺序生效，不同key之间不保证顺序
+ * 可见性：本节点读取优先返回队列中未写入的数据，其他节点在写入redis后可见，本地缓存失效广播随写入一起发送
+ * 写入失败时未被覆盖的数据重新放回队列，停止时写入失败的数据丢弃
+ * 队列已满或未启动时返回false，由调用方同步写入
+ */
+@Slf4j
+public class CacheWriteBehindQueue {
+
+    private final String name;
+
+    //队列最大key数量,队列中的key继续合并,不受限制
+    private final int capacity;
+
+    //每批最多写入key数量
+    private final int batchSize;
+
+    //第一条数据进入队列后最长等待纳秒数
+    private final long intervalNanos;
+
+    //停止时等待写完的最长毫秒数
+    private final long shutdownTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    //队列有新数据或者停止时通知
+    private final Condition changed = lock.newCondition();
+
+    //一批写入结束时通知
+    private final Condition flushed = lock.newCondition();
+
+    //等待写入的数据,按第一次进入队列的顺序
+    private final LinkedHashMap<String, Write> pending = new LinkedHashMap<String, Write>();
+
+    //正在写入的数据,写入完成前读取仍然可见
+    private final Map<String, Write> flushing = new HashMap<String, Write>();
+
+    //队列由空变为非空的时刻
+    private long firstAt;
+
+    //每次丢弃队列时加1,丢弃前取出的一批写入失败时不再放回队列
+    private long discardEpoch;
+
+    private volatile boolean running;
+
+    private Thread worker;
+
+    private Consumer<List<Map.Entry<String, Write>>> flusher;
+
+    private final LongAdder coalescedCount = new LongAdder();
+
+    private final LongAdder flushedCount = new LongAdder();
+
+    private final LongAdder fullCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    /**
+     * @param name 缓存名称
+     * @param capacity 队列最大key数量
+     * @param batchSize 每批最多写入key数量
+     * @param interval 最长等待毫秒数
+     * @param shutdownTimeout 停止时等待写完的最长毫秒数
+     */
+    public CacheWriteBehindQueue(String name, int capacity, int batchSize, long interval, long shutdownTimeout) {
+        this.name = name;
+        this.capacity = Math.max(1, capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, interval));
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    /**
+     * 启动后台写入线程
+     * @param flusher 批量写入redis，异常时抛出
+     */
+    public void start(Consumer<List<Map.Entry<String, Write>>> flusher) {
+        lock.lock();
+        try {
+            if (running) {
+                return;
+            }
+            this.flusher = flusher;
+            this.running = true;
+            this.worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    loop();
+                }
+            }, "cache-redis-write-behind-" + name);
+            this.worker.setDaemon(true);
+            this.worker.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 停止接收新数据，等待队列写完
+     */
+    public void close() {
+        Thread thread;
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+            changed.signalAll();
+            thread = worker;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            thread.join(shutdownTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            if (!pending.isEmpty()) {
+                log.error("redis cache {} write-behind not flushed in {}ms, dropped:{}", name, shutdownTimeout, pending.size());
+                droppedCount.add(pending.size());
+                pending.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 放入队列，同一key未写入的数据被覆盖
+     * @param keyf 完整缓存key
+     * @param value 序列化后的数据，null表示删除
+     * @param liveTime 存活秒数，小于等于0时不过期
+     * @return 未启动或队列已满时返回false
+     */
+    public boolean offer(String keyf, byte[] value, long liveTime) {
+        lock.lock();
+        try {
+            if (!running) {
+                return false;
+            }
+            //正在写入的key也进入队列,保证写入顺序
+            boolean queued = pending.containsKey(keyf);
+            if (!queued && !flushing.containsKey(keyf) && pending.size() >= capacity) {
+                fullCount.increment();
+                return false;
+            }
+            pending.put(keyf, new Write(value, liveTime));
+            if (queued) {
+                coalescedCount.increment();
+            } else if (pending.size() == 1) {
+                firstAt = System.nanoTime();
+                changed.signalAll();
+            } else if (pending.size() == batchSize) {
+                changed.signalAll();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 队列中未写入redis的数据
+     * @param keyf 完整缓存key
+     * @return 不在队列中时返回null，删除时value为null
+     */
+    public Write peek(String keyf) {
+        lock.lock();
+        try {
+            Write write = pending.get(keyf);
+            return write != null ? write : flushing.get(keyf);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 丢弃队列中的数据并等待正在写入的一批结束，用于清空缓存
+     */
+    public void discard() {
+        lock.lock();
+        try {
+            droppedCount.add(pending.size());
+            pending.clear();
+            discardEpoch++;
+            long nanos = TimeUnit.MILLISECONDS.toNanos(shutdownTimeout);
+            while (!flushing.isEmpty() && nanos > 0) {
+                nanos = flushed.awaitNanos(nanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 队列中等待写入的key数量
+     * @return count
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 被后续写入覆盖而合并的次数
+     * @return count
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * 已写入redis的key数量
+     * @return count
+     */
+    public long getFlushedCount() {
+        return flushedCount.sum();
+    }
+
+    /**
+     * 队列已满改为同步写入的次数
+     * @return count
+     */
+    public long getFullCount() {
+        return fullCount.sum();
+    }
+
+    /**
+     * 清空缓存、停止时丢弃的key数量
+     * @return count
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /*后台写入,达到每批数量、等待超过间隔或者停止时写入一批*/
+    private void loop() {
+        while (true) {
+            List<Map.Entry<String, Write>> batch;
+            long epoch;
+            lock.lock();
+            try {
+                while (true) {
+                    if (pending.isEmpty()) {
+                        if (!running) {
+                            return;
+                        }
+                        changed.await();
+                        continue;
+                    }
+                    long wait = firstAt + intervalNanos - System.nanoTime();
+                    if (!running || pending.size() >= batchSize || wait <= 0) {
+                        break;
+                    }
+                    changed.awaitNanos(wait);
+                }
+                epoch = discardEpoch;
+                batch = new ArrayList<Map.Entry<String, Write>>(Math.min(batchSize, pending.size()));
+                Iterator<Map.Entry<String, Write>> it = pending.entrySet().iterator();
+                while (it.hasNext() && batch.size() < batchSize) {
+                    Map.Entry<String, Write> entry = it.next();
+                    batch.add(new AbstractMap.SimpleImmutableEntry<String, Write>(entry.getKey(), entry.getValue()));
+                    flushing.put(entry.getKey(), entry.getValue());
+                    it.remove();
+                }
+            } catch (InterruptedException e) {
+                //只由close停止,中断时继续写完队列
+                continue;
+            } finally {
+                lock.unlock();
+            }
+            flush(batch, epoch);
+        }
+    }
+
+    /*写入一批,失败时放回未被覆盖的数据,停止或取出后队列被丢弃时丢弃*/
+    private void flush(List<Map.Entry<String, Write>> batch, long epoch) {
+        boolean success = false;
+        try {
+            flusher.accept(batch);
+            flushedCount.add(batch.size());
+            success = true;
+        } catch (Throwable e) {
+            //Error也不能结束后台线程,否则正在写入的数据一直留在flushing中
+            log.error("redis cache {} write-behind flush error, keys:{}", name, batch.size(), e);
+        }
+        lock.lock();
+        try {
+            for (Map.Entry<String, Write> entry : batch) {
+                if (flushing.get(entry.getKey()) == entry.getValue()) {
+                    flushing.remove(entry.getKey());
+                }
+                if (success || pending.containsKey(entry.getKey())) {
+                    continue;
+                }
+                //清空缓存后不能再写入清空前的数据
+                if (running && epoch == discardEpoch) {
+                    if (pending.isEmpty()) {
+                        firstAt = System.nanoTime();
+                    }
+                    pending.put(entry.getKey(), entry.getValue());
+                } else {
+                    droppedCount.increment();
+                }
+            }
+            flushed.signalAll();
+            //失败后等待一个间隔再重试
+            if (!success && running) {
+                changed.awaitNanos(intervalNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 队列中的一次写入
+     */
+    public static final class Write {
+
+        //序列化后的数据,null表示删除
+        private final byte[] value;
+
+        //存活秒数
+        private final long liveTime;
+
+        Write(byte[] value, long liveTime) {
+            this.value = value;
+            this.liveTime = liveTime;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+
+        public long getLiveTime() {
+            return liveTime;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.shinho.support.cache.redis.repository;
+
+import org.springframework.cache.Cache;
+
+/**
+ * @author 傅为地
+ * 支持结构化缓存的缓存
+ * 通过CacheRedisManager.getStructuredCache(name)获取，大的Map或List存储为redis hash或list，修改单个元素时只读写该元素
+ * 结构化缓存与同一key的普通缓存分开存储，evict不删除结构化缓存，clear同时清除
+ */
+public interface StructuredCache extends Cache {
+
+    /**
+     * 结构化缓存Map
+     * @param key 缓存key
+     * @return entry
+     */
+    CacheHashEntry hashEntry(Object key);
+
+    /**
+     * 结构化缓存List
+     * @param key 缓存key
+     * @return entry
+     */
+    CacheListEntry listEntry(Object key);
+
+    /**
+     * 删除结构化缓存，不区分Map或List
+     * @param key 缓存key
+     */
+    void evictStructured(Object key);
+}
@@ -0,0 +1,84 @@
+package com.shinho.support.cache.redis.serializer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author 傅为地
+ * 缓存压缩统计，用于调整压缩阈值和压缩方式
+ */
+public class CacheCompressionStats {
+
+    //压缩次数
+    private final LongAdder compressCount = new LongAdder();
+
+    //压缩后未变小，放弃压缩次数
+    private final LongAdder skipCount = new LongAdder();
+
+    //压缩前字节总数
+    private final LongAdder bytesBefore = new LongAdder();
+
+    //压缩后字节总数
+    private final LongAdder bytesAfter = new LongAdder();
+
+    //压缩耗时(纳秒)
+    private final LongAdder compressNanos = new LongAdder();
+
+    //解压次数
+    private final LongAdder decompressCount = new LongAdder();
+
+    //解压耗时(纳秒)
+    private final LongAdder decompressNanos = new LongAdder();
+
+    void recordCompress(int before, int after, long nanos) {
+        compressCount.increment();
+        bytesBefore.add(before);
+        bytesAfter.add(after);
+        compressNanos.add(nanos);
+    }
+
+    void recordSkip(long nanos) {
+        skipCount.increment();
+        compressNanos.add(nanos);
+    }
+
+    void recordDecompress(long nanos) {
+        decompressCount.increment();
+        decompressNanos.add(nanos);
+    }
+
+    public long getCompressCount() {
+        return compressCount.sum();
+    }
+
+    public long getSkipCount() {
+        return skipCount.sum();
+    }
+
+    public long getBytesBefore() {
+        return bytesBefore.sum();
+    }
+
+    public long getBytesAfter() {
+        return bytesAfter.sum();
+    }
+
+    /**
+     * 压缩节省的字节总数
+     * @return bytes
+     */
+    public long getBytesSaved() {
+        return bytesBefore.sum() - bytesAfter.sum();
+    }
+
+    public long getCompressNanos() {
+        return compressNanos.sum();
+    }
+
+    public long getDecompressCount() {
+        return decompressCount.sum();
+    }
+
+    public long getDecompressNanos() {
+        return decompressNanos.sum();
+    }
+}
@@ -0,0 +1,285 @@
+package com.shinho.support.cache.redis.serializer;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.Collection;
+
+/**
+ * @author 傅为地
+ * 缓存值编解码
+ * 数据格式：[魔数1字节][序列化编号1字节][标识位1字节][序列化数据]
+ * 标识位低2位为压缩方式编号，压缩时序列化数据为：[原始长度4字节][压缩数据]
+ * 标识位FLAG_META表示数据头后带有元数据：[写入时刻8字节][过期时刻8字节][加载耗时4字节]
+ * 标识位FLAG_NULL表示空值缓存，只有数据头
+ * 标识位FLAG_CHUNKED表示数据分块存储，数据头后为分块信息，由缓存读取时还原
+ * 使用jdk序列化且没有任何标识位时不写数据头，与历史版本写入的数据完全一致，便于滚动发布；
+ * 读取时不以魔数开头的数据按历史jdk序列化数据处理
+ */
+public class CacheValueCodec {
+
+    //数据头魔数,jdk序列化数据固定以0xAC开头,不会冲突
+    public static final byte MAGIC = (byte) 0xCA;
+
+    //内置序列化方式保留的最大编号
+    public static final int RESERVED_ID_MAX = 15;
+
+    //数据头长度
+    public static final int HEADER_LENGTH = 3;
+
+    //压缩方式标识位掩码
+    public static final int FLAG_COMPRESSION_MASK = 0x03;
+
+    //带有写入元数据标识位
+    public static final int FLAG_META = 0x04;
+
+    //空值缓存标识位
+    public static final int FLAG_NULL = 0x08;
+
+    //分块存储信息,由CacheRedisRepository写入,不经过编解码
+    public static final int FLAG_CHUNKED = 0x10;
+
+    //元数据长度
+    public static final int META_LENGTH = 20;
+
+    //压缩数据中原始长度占用字节
+    private static final int LENGTH_BYTES = 4;
+
+    private final CacheValueSerializer writer;
+
+    private final CacheValueSerializer legacy;
+
+    private final CacheValueSerializer[] readers = new CacheValueSerializer[256];
+
+    //写入使用的压缩方式,为null时不压缩
+    private final CacheValueCompressor compressor;
+
+    //序列化后达到该字节数才压缩
+    private final int compressThreshold;
+
+    private final CacheValueCompressor[] decompressors = new CacheValueCompressor[FLAG_COMPRESSION_MASK + 1];
+
+    private final CacheCompressionStats compressionStats = new CacheCompressionStats();
+
+    /**
+     * @param writer 写入使用的序列化方式
+     * @param serializers 可读取的全部序列化方式
+     */
+    public CacheValueCodec(CacheValueSerializer writer, Collection<? extends CacheValueSerializer> serializers) {
+        this(writer, serializers, null, 0, null);
+    }
+
+    /**
+     * @param writer 写入使用的序列化方式
+     * @param serializers 可读取的全部序列化方式
+     * @param compressor 写入使用的压缩方式,为null时不压缩
+     * @param compressThreshold 压缩阈值(字节)
+     * @param compressors 可解压的全部压缩方式
+     */
+    public CacheValueCodec(CacheValueSerializer writer, Collection<? extends CacheValueSerializer> serializers,
+                           CacheValueCompressor compressor, int compressThreshold, Collection<? extends CacheValueCompressor> compressors) {
+        checkId(writer);
+        this.writer = writer;
+        this.legacy = new JdkCacheValueSerializer();
+        this.readers[legacy.getId() & 0xFF] = legacy;
+        if (serializers != null) {
+            for (CacheValueSerializer serializer : serializers) {
+                checkId(serializer);
+                readers[serializer.getId() & 0xFF] = serializer;
+            }
+        }
+        this.readers[writer.getId() & 0xFF] = writer;
+        this.compressor = compressor;
+        this.compressThreshold = compressThreshold;
+        if (compressors != null) {
+            for (CacheValueCompressor item : compressors) {
+                decompressors[item.getFlag() & FLAG_COMPRESSION_MASK] = item;
+            }
+        }
+        if (compressor != null) {
+            decompressors[compressor.getFlag() & FLAG_COMPRESSION_MASK] = compressor;
+        }
+    }
+
+    /**
+     * 编号1-15为内置实现保留，自定义实现使用保留编号时会读错其他方式写入的数据
+     * @param serializer 序列化方式
+     */
+    private static void checkId(CacheValueSerializer serializer) {
+        int id = serializer.getId() & 0xFF;
+        if (id == 0 || id > RESERVED_ID_MAX) {
+            return;
+        }
+        Class<?> expected;
+        switch (id) {
+            case JdkCacheValueSerializer.ID:
+                expected = JdkCacheValueSerializer.class;
+                break;
+            case JacksonCacheValueSerializer.ID:
+                expected = JacksonCacheValueSerializer.class;
+                break;
+            case KryoCacheValueSerializer.ID:
+                expected = KryoCacheValueSerializer.class;
+                break;
+            default:
+                expected = null;
+        }
+        if (expected == null || !expected.isInstance(serializer)) {
+            throw new IllegalArgumentException("cache value serializer id " + id + " is reserved for built-in serializers: "
+                    + serializer.getClass().getName());
+        }
+    }
+
+    /**
+     * 对象编码
+     * @param value 缓存对象
+     * @return bytes
+     * @throws SerializationException 序列化失败
+     */
+    public byte[] encode(Object value) throws SerializationException {
+        return encode(new CacheValueEntry(value));
+    }
+
+    /**
+     * 空值缓存编码，只写数据头
+     * @return bytes
+     */
+    public byte[] encodeNull() {
+        byte[] bytes = new byte[HEADER_LENGTH];
+        writeHeader(bytes, (byte) FLAG_NULL);
+        return bytes;
+    }
+
+    /**
+     * 对象及写入元数据编码
+     * @param entry 缓存对象及元数据
+     * @return bytes
+     * @throws SerializationException 序列化失败
+     */
+    public byte[] encode(CacheValueEntry entry) throws SerializationException {
+        byte[] body = writer.serialize(entry.getValue());
+        int metaLength = entry.hasMeta() ? META_LENGTH : 0;
+        int flags = entry.hasMeta() ? FLAG_META : 0;
+        if (compressor != null && body.length >= compressThreshold) {
+            long start = System.nanoTime();
+            byte[] compressed = compressor.compress(body, 0, body.length);
+            long nanos = System.nanoTime() - start;
+            if (compressed.length + LENGTH_BYTES < body.length) {
+                compressionStats.recordCompress(body.length, compressed.length + LENGTH_BYTES, nanos);
+                int offset = HEADER_LENGTH + metaLength;
+                byte[] bytes = new byte[offset + LENGTH_BYTES + compressed.length];
+                writeHeader(bytes, (byte) (flags | compressor.getFlag()));
+                writeMeta(bytes, entry);
+                writeInt(bytes, offset, body.length);
+                System.arraycopy(compressed, 0, bytes, offset + LENGTH_BYTES, compressed.length);
+                return bytes;
+            }
+            compressionStats.recordSkip(nanos);
+        }
+        if (flags == 0 && writer.getId() == JdkCacheValueSerializer.ID) {
+            return body;
+        }
+        byte[] bytes = new byte[HEADER_LENGTH + metaLength + body.length];
+        writeHeader(bytes, (byte) flags);
+        writeMeta(bytes, entry);
+        System.arraycopy(body, 0, bytes, HEADER_LENGTH + metaLength, body.length);
+        return bytes;
+    }
+
+    /**
+     * 字节解码
+     * @param bytes 缓存数据
+     * @return obj
+     * @throws SerializationException 反序列化失败或者序列化方式未注册
+     */
+    public Object decode(byte[] bytes) throws SerializationException {
+        return decodeEntry(bytes).getValue();
+    }
+
+    /**
+     * 字节解码，同时读取写入元数据
+     * @param bytes 缓存数据
+     * @return entry 没有元数据时writeTime为0
+     * @throws SerializationException 反序列化失败或者序列化方式未注册
+     */
+    public CacheValueEntry decodeEntry(byte[] bytes) throws SerializationException {
+        if (bytes.length < HEADER_LENGTH || bytes[0] != MAGIC) {
+            return new CacheValueEntry(legacy.deserialize(bytes, 0, bytes.length));
+        }
+        CacheValueSerializer reader = readers[bytes[1] & 0xFF];
+        if (reader == null) {
+            throw new SerializationException("unknown cache value serializer id:" + bytes[1]);
+        }
+        int flags = bytes[2];
+        if ((flags & FLAG_NULL) != 0) {
+            return CacheValueEntry.NULL;
+        }
+        long writeTime = 0L;
+        long expireAt = 0L;
+        int computeMillis = 0;
+        int offset = HEADER_LENGTH;
+        if ((flags & FLAG_META) != 0) {
+            writeTime = readLong(bytes, offset);
+            expireAt = readLong(bytes, offset + 8);
+            computeMillis = readInt(bytes, offset + 16);
+            offset += META_LENGTH;
+        }
+        int compression = flags & FLAG_COMPRESSION_MASK;
+        if (compression == 0) {
+            return new CacheValueEntry(reader.deserialize(bytes, offset, bytes.length - offset), writeTime, expireAt, computeMillis);
+        }
+        CacheValueCompressor decompressor = decompressors[compression];
+        if (decompressor == null) {
+            throw new SerializationException("unknown cache value compression flag:" + compression);
+        }
+        long start = System.nanoTime();
+        int bodyOffset = offset + LENGTH_BYTES;
+        byte[] body = decompressor.decompress(bytes, bodyOffset, bytes.length - bodyOffset, readInt(bytes, offset));
+        compressionStats.recordDecompress(System.nanoTime() - start);
+        return new CacheValueEntry(reader.deserialize(body, 0, body.length), writeTime, expireAt, computeMillis);
+    }
+
+    public CacheValueSerializer getWriter() {
+        return writer;
+    }
+
+    public CacheCompressionStats getCompressionStats() {
+        return compressionStats;
+    }
+
+    /*写入数据头*/
+    private void writeHeader(byte[] bytes, byte flags) {
+        bytes[0] = MAGIC;
+        bytes[1] = writer.getId();
+        bytes[2] = flags;
+    }
+
+    /*写入元数据*/
+    private void writeMeta(byte[] bytes, CacheValueEntry entry) {
+        if (entry.hasMeta()) {
+            writeLong(bytes, HEADER_LENGTH, entry.getWriteTime());
+            writeLong(bytes, HEADER_LENGTH + 8, entry.getExpireAt());
+            writeInt(bytes, HEADER_LENGTH + 16, entry.getComputeMillis());
+        }
+    }
+
+    private static void writeLong(byte[] bytes, int offset, long value) {
+        writeInt(bytes, offset, (int) (value >>> 32));
+        writeInt(bytes, offset + 4, (int) value);
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        return ((long) readInt(bytes, offset) << 32) | (readInt(bytes, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+}
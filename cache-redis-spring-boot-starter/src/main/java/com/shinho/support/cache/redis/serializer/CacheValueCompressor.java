@@ -0,0 +1,40 @@
+package com.shinho.support.cache.redis.serializer;
+
+/**
+ * @author 傅为地
+ * 缓存值压缩接口
+ * 压缩方式编号记录在数据头标识位的低2位中
+ */
+public interface CacheValueCompressor {
+
+    /**
+     * 压缩方式编号,取值1-3
+     * @return flag
+     */
+    byte getFlag();
+
+    /**
+     * 压缩方式名称，对应单项缓存compression配置
+     * @return name
+     */
+    String getName();
+
+    /**
+     * 压缩
+     * @param src 原始数据
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 压缩后数据
+     */
+    byte[] compress(byte[] src, int offset, int length);
+
+    /**
+     * 解压
+     * @param src 压缩数据
+     * @param offset 起始位置
+     * @param length 长度
+     * @param originalLength 原始数据长度
+     * @return 原始数据
+     */
+    byte[] decompress(byte[] src, int offset, int length, int originalLength);
+}
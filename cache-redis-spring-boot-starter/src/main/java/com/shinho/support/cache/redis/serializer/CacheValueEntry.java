@@ -0,0 +1,73 @@
+package com.shinho.support.cache.redis.serializer;
+
+/**
+ * @author 傅为地
+ * 缓存值及写入元数据
+ * 元数据记录写入时刻、过期时刻和加载耗时，用于提前刷新判断，不需要额外查询redis
+ */
+public class CacheValueEntry {
+
+    //空值缓存,表示数据不存在
+    public static final CacheValueEntry NULL = new CacheValueEntry(null, 0L, 0L, 0, true);
+
+    private final Object value;
+
+    //写入时刻(毫秒),0表示没有元数据
+    private final long writeTime;
+
+    //过期时刻(毫秒),0表示不过期
+    private final long expireAt;
+
+    //加载耗时(毫秒)
+    private final int computeMillis;
+
+    private final boolean nullValue;
+
+    public CacheValueEntry(Object value) {
+        this(value, 0L, 0L, 0);
+    }
+
+    public CacheValueEntry(Object value, long writeTime, long expireAt, int computeMillis) {
+        this(value, writeTime, expireAt, computeMillis, false);
+    }
+
+    private CacheValueEntry(Object value, long writeTime, long expireAt, int computeMillis, boolean nullValue) {
+        this.nullValue = nullValue;
+        this.value = value;
+        this.writeTime = writeTime;
+        this.expireAt = expireAt;
+        this.computeMillis = computeMillis;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public long getWriteTime() {
+        return writeTime;
+    }
+
+    public long getExpireAt() {
+        return expireAt;
+    }
+
+    public int getComputeMillis() {
+        return computeMillis;
+    }
+
+    /**
+     * 是否带有写入元数据
+     * @return boolean
+     */
+    public boolean hasMeta() {
+        return writeTime > 0;
+    }
+
+    /**
+     * 是否为空值缓存
+     * @return boolean
+     */
+    public boolean isNullValue() {
+        return nullValue;
+    }
+}
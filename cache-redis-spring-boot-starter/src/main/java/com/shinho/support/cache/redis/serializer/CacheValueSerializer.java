@@ -0,0 +1,43 @@
+package com.shinho.support.cache.redis.serializer;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * @author 傅为地
+ * 缓存值序列化扩展接口
+ * 每种序列化方式拥有唯一编号，写入缓存时记录在数据头中，读取时按编号选择对应实现，
+ * 因此单项缓存切换序列化方式后，新旧数据可以同时被正确读取
+ * 自定义实现注册为spring bean即可，编号1-15为内置实现保留，自定义实现使用时CacheValueCodec抛出IllegalArgumentException
+ */
+public interface CacheValueSerializer {
+
+    /**
+     * 序列化方式唯一编号
+     * @return id
+     */
+    byte getId();
+
+    /**
+     * 序列化方式名称，对应单项缓存serializer配置
+     * @return name
+     */
+    String getName();
+
+    /**
+     * 对象转换字节
+     * @param value 缓存对象
+     * @return bytes
+     * @throws SerializationException 序列化失败
+     */
+    byte[] serialize(Object value) throws SerializationException;
+
+    /**
+     * 字节转换对象
+     * @param bytes 字节数组
+     * @param offset 数据起始位置
+     * @param length 数据长度
+     * @return obj
+     * @throws SerializationException 反序列化失败
+     */
+    Object deserialize(byte[] bytes, int offset, int length) throws SerializationException;
+}
@@ -0,0 +1,72 @@
+package com.shinho.support.cache.redis.serializer;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * @author 傅为地
+ * jdk内置deflate压缩，压缩率高于lz4，速度较慢
+ */
+public class DeflateCacheValueCompressor implements CacheValueCompressor {
+
+    public static final byte FLAG = 2;
+
+    public static final String NAME = "deflate";
+
+    @Override
+    public byte getFlag() {
+        return FLAG;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] compress(byte[] src, int offset, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(src, offset, length);
+            deflater.finish();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(64, length / 2));
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                bos.write(buffer, 0, count);
+            }
+            return bos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] src, int offset, int length, int originalLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(src, offset, length);
+            byte[] result = new byte[originalLength];
+            int total = 0;
+            while (total < originalLength && !inflater.finished()) {
+                int count = inflater.inflate(result, total, originalLength - total);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                total += count;
+            }
+            if (total != originalLength) {
+                throw new SerializationException("deflate decompress cache value length mismatch");
+            }
+            return result;
+        } catch (DataFormatException ex) {
+            throw new SerializationException("deflate decompress cache value error", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+}
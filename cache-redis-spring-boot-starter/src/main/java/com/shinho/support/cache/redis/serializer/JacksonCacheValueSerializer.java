@@ -0,0 +1,93 @@
+package com.shinho.support.cache.redis.serializer;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.ClassUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author 傅为地
+ * jackson json序列化，数据格式为["缓存对象类型",json]，按缓存对象的实际类型还原，Long、String、枚举等final类型也不会改变
+ * 对象内部记录非final类型信息；注意：Object类型字段和集合元素中的final类型(如Long)仍可能按json默认类型(如Integer)还原
+ */
+public class JacksonCacheValueSerializer implements CacheValueSerializer {
+
+    public static final byte ID = 2;
+
+    public static final String NAME = "json";
+
+    private static final byte[] NULL_JSON = "null".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+
+    public JacksonCacheValueSerializer() {
+        ObjectMapper om = new ObjectMapper();
+        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        om.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        om.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        om.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        this.objectMapper = om;
+    }
+
+    public JacksonCacheValueSerializer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return NULL_JSON.clone();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.writeStartArray();
+            generator.writeString(value.getClass().getName());
+            objectMapper.writerFor(value.getClass()).writeValue(generator, value);
+            generator.writeEndArray();
+            generator.close();
+            return out.toByteArray();
+        } catch (IOException ex) {
+            throw new SerializationException("json serialize cache value error", ex);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes, int offset, int length) throws SerializationException {
+        try {
+            JsonParser parser = objectMapper.getFactory().createParser(bytes, offset, length);
+            try {
+                if (parser.nextToken() != JsonToken.START_ARRAY || parser.nextToken() != JsonToken.VALUE_STRING) {
+                    return null;
+                }
+                Class<?> type = ClassUtils.forName(parser.getText(), getClass().getClassLoader());
+                parser.nextToken();
+                return objectMapper.readerFor(type).readValue(parser);
+            } finally {
+                parser.close();
+            }
+        } catch (IOException | ClassNotFoundException | LinkageError ex) {
+            throw new SerializationException("json deserialize cache value error", ex);
+        }
+    }
+}
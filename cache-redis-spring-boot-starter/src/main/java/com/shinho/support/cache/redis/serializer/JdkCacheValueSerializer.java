@@ -0,0 +1,47 @@
+package com.shinho.support.cache.redis.serializer;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.*;
+
+/**
+ * @author 傅为地
+ * jdk原生序列化，兼容历史缓存数据
+ */
+public class JdkCacheValueSerializer implements CacheValueSerializer {
+
+    public static final byte ID = 1;
+
+    public static final String NAME = "jdk";
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(value);
+            oos.flush();
+            return bos.toByteArray();
+        } catch (IOException ex) {
+            throw new SerializationException("jdk serialize cache value error", ex);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes, int offset, int length) throws SerializationException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes, offset, length))) {
+            return ois.readObject();
+        } catch (IOException | ClassNotFoundException ex) {
+            throw new SerializationException("jdk deserialize cache value error", ex);
+        }
+    }
+}
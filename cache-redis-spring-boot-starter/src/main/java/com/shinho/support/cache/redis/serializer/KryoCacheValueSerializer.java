@@ -0,0 +1,100 @@
+package com.shinho.support.cache.redis.serializer;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoFactory;
+import com.esotericsoftware.kryo.pool.KryoPool;
+import com.esotericsoftware.kryo.serializers.JavaSerializer;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.*;
+
+/**
+ * @author 傅为地
+ * kryo紧凑二进制序列化，需要项目引入kryo依赖
+ * 预注册的类型只写入类型编号，不写入完整类名，注册顺序决定编号，所有节点必须保持一致
+ * 未注册的类型仍可序列化，此时写入完整类名
+ */
+public class KryoCacheValueSerializer implements CacheValueSerializer {
+
+    public static final byte ID = 3;
+
+    public static final String NAME = "kryo";
+
+    //输出缓冲初始大小
+    private static final int BUFFER_SIZE = 4096;
+
+    //无法通过构造器还原的jdk内部集合类型,使用jdk序列化处理
+    private static final Class<?>[] JDK_SPECIAL_CLASSES = {
+            Arrays.asList().getClass(),
+            Collections.emptyList().getClass(), Collections.emptySet().getClass(), Collections.emptyMap().getClass(),
+            Collections.singletonList(null).getClass(), Collections.singleton(null).getClass(), Collections.singletonMap(null, null).getClass(),
+            Collections.unmodifiableCollection(new ArrayList<Object>()).getClass(),
+            Collections.unmodifiableList(new ArrayList<Object>()).getClass(), Collections.unmodifiableList(new LinkedList<Object>()).getClass(),
+            Collections.unmodifiableSet(new HashSet<Object>()).getClass(), Collections.unmodifiableSortedSet(new TreeSet<Object>()).getClass(),
+            Collections.unmodifiableMap(new HashMap<Object, Object>()).getClass(), Collections.unmodifiableSortedMap(new TreeMap<Object, Object>()).getClass()
+    };
+
+    private final KryoPool pool;
+
+    /**
+     * @param registeredClasses 预注册类型
+     */
+    public KryoCacheValueSerializer(final List<Class<?>> registeredClasses) {
+        final List<Class<?>> classes = registeredClasses == null ? Collections.<Class<?>>emptyList() : new ArrayList<Class<?>>(registeredClasses);
+        this.pool = new KryoPool.Builder(new KryoFactory() {
+            @Override
+            public Kryo create() {
+                Kryo kryo = new Kryo();
+                kryo.setRegistrationRequired(false);
+                kryo.setReferences(true);
+                kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+                for (Class<?> clazz : JDK_SPECIAL_CLASSES) {
+                    kryo.addDefaultSerializer(clazz, JavaSerializer.class);
+                }
+                for (Class<?> clazz : classes) {
+                    kryo.register(clazz);
+                }
+                return kryo;
+            }
+        }).softReferences().build();
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        Kryo kryo = pool.borrow();
+        try {
+            Output output = new Output(BUFFER_SIZE, -1);
+            kryo.writeClassAndObject(output, value);
+            return output.toBytes();
+        } catch (RuntimeException ex) {
+            throw new SerializationException("kryo serialize cache value error", ex);
+        } finally {
+            pool.release(kryo);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes, int offset, int length) throws SerializationException {
+        Kryo kryo = pool.borrow();
+        try {
+            return kryo.readClassAndObject(new Input(bytes, offset, length));
+        } catch (RuntimeException ex) {
+            throw new SerializationException("kryo deserialize cache value error", ex);
+        } finally {
+            pool.release(kryo);
+        }
+    }
+}
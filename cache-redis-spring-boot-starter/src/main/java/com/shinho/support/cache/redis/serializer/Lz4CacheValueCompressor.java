@@ -0,0 +1,52 @@
+package com.shinho.support.cache.redis.serializer;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.util.Arrays;
+
+/**
+ * @author 傅为地
+ * lz4快速压缩，需要项目引入lz4-java依赖
+ */
+public class Lz4CacheValueCompressor implements CacheValueCompressor {
+
+    public static final byte FLAG = 1;
+
+    public static final String NAME = "lz4";
+
+    private final LZ4Compressor compressor;
+
+    private final LZ4FastDecompressor decompressor;
+
+    public Lz4CacheValueCompressor() {
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.fastDecompressor();
+    }
+
+    @Override
+    public byte getFlag() {
+        return FLAG;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] compress(byte[] src, int offset, int length) {
+        byte[] dest = new byte[compressor.maxCompressedLength(length)];
+        int size = compressor.compress(src, offset, length, dest, 0, dest.length);
+        return Arrays.copyOf(dest, size);
+    }
+
+    @Override
+    public byte[] decompress(byte[] src, int offset, int length, int originalLength) {
+        byte[] dest = new byte[originalLength];
+        decompressor.decompress(src, offset, dest, 0, originalLength);
+        return dest;
+    }
+}
@@ -0,0 +1,328 @@
+package com.shinho.support.cache.redis.warmup;
+
+import com.shinho.support.cache.redis.properties.CacheRedisProperties;
+import com.shinho.support.cache.redis.repository.CacheRedisManager;
+import com.shinho.support.cache.redis.repository.CacheRedisRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.util.CollectionUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author 傅为地
+ * 缓存启动预热，应用上下文启动时执行
+ * 先把上次记录的热点key快照恢复到redis(只写入不存在的key)，再按批并行从各预热来源加载，通过管道批量写入
+ * 并行数和每秒加载key数量可配置，开启等待时阻塞启动直到预热完成或超时，web容器在此之后才开始接收请求
+ */
+@Slf4j
+public class CacheWarmUpEngine implements SmartLifecycle {
+
+    //等待预热完成时输出进度的间隔(毫秒)
+    private static final long REPORT_INTERVAL = 5000L;
+
+    private final CacheRedisManager cacheManager;
+
+    private final List<CacheWarmUpSource> sources;
+
+    private final CacheRedisProperties.WarmUp config;
+
+    private volatile Map<String, CacheWarmUpProgress> progress = Collections.emptyMap();
+
+    private volatile boolean running;
+
+    private ExecutorService executor;
+
+    private ScheduledExecutorService snapshotScheduler;
+
+    //全部批次完成时计数归零
+    private CountDownLatch finished = new CountDownLatch(0);
+
+    //下一次允许加载的时刻(纳秒),用于限制每秒加载数量
+    private long nextPermitAt;
+
+    /**
+     * @param cacheManager 缓存管理
+     * @param sources 预热来源，可以为空
+     * @param config 预热配置
+     */
+    public CacheWarmUpEngine(CacheRedisManager cacheManager, List<CacheWarmUpSource> sources, CacheRedisProperties.WarmUp config) {
+        this.cacheManager = cacheManager;
+        this.sources = sources == null ? Collections.<CacheWarmUpSource>emptyList() : sources;
+        this.config = config;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Map<String, CacheWarmUpProgress> all = new LinkedHashMap<String, CacheWarmUpProgress>();
+        if (config.isSnapshot()) {
+            restoreSnapshots(all);
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory("cache-redis-snapshot-"));
+            snapshotScheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    writeSnapshots();
+                }
+            }, config.getSnapshotInterval(), config.getSnapshotInterval(), TimeUnit.MILLISECONDS);
+        }
+        //先统计全部批次,避免前面的来源完成时后面的来源还未提交
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (CacheWarmUpSource source : sources) {
+            CacheRedisRepository cache = getRepository(source.getCacheName());
+            if (cache == null) {
+                log.warn("redis cache warm-up skip source {}, cache not found:{}", source.getClass().getName(), source.getCacheName());
+                continue;
+            }
+            Collection<?> keys;
+            try {
+                keys = source.getKeys();
+            } catch (Exception e) {
+                log.error("redis cache warm-up get keys error, cache:{}", source.getCacheName(), e);
+                continue;
+            }
+            CacheWarmUpProgress p = all.get(cache.getName());
+            if (p == null) {
+                p = new CacheWarmUpProgress(cache.getName());
+                all.put(cache.getName(), p);
+            }
+            if (CollectionUtils.isEmpty(keys)) {
+                continue;
+            }
+            p.addTotal(keys.size());
+            List<Object> list = new ArrayList<Object>(keys);
+            int batchSize = Math.max(1, config.getBatch());
+            for (int from = 0; from < list.size(); from += batchSize) {
+                p.addPending();
+                tasks.add(createTask(source, cache, list.subList(from, Math.min(from + batchSize, list.size())), p));
+            }
+        }
+        for (CacheWarmUpProgress p : all.values()) {
+            p.finishIfIdle();
+        }
+        progress = Collections.unmodifiableMap(all);
+        if (tasks.isEmpty()) {
+            return;
+        }
+        log.info("redis cache warm-up start, caches:{},batches:{}", all.keySet(), tasks.size());
+        finished = new CountDownLatch(tasks.size());
+        executor = Executors.newFixedThreadPool(Math.max(1, config.getConcurrency()), threadFactory("cache-redis-warmup-"));
+        for (Runnable task : tasks) {
+            executor.execute(task);
+        }
+        executor.shutdown();
+        if (config.isWait()) {
+            await();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+            writeSnapshots();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    /**
+     * 最后启动，最先停止，停止时redis连接仍然可用于记录快照
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * 各缓存预热进度
+     * @return 缓存名称与进度
+     */
+    public Map<String, CacheWarmUpProgress> getProgress() {
+        return progress;
+    }
+
+    /**
+     * 是否全部预热完成
+     * @return boolean
+     */
+    public boolean isDone() {
+        return finished.getCount() == 0;
+    }
+
+    /**
+     * 立即记录热点key快照
+     */
+    public void writeSnapshots() {
+        for (String name : cacheManager.getCacheNames()) {
+            CacheRedisRepository cache = getRepository(name);
+            if (cache == null || cache.getHotKeyDetector() == null) {
+                continue;
+            }
+            List<String> keys = new ArrayList<String>();
+            for (Map.Entry<String, Long> entry : cache.getHotKeyDetector().getHotKeys()) {
+                keys.add(entry.getKey());
+            }
+            //没有热点时保留上一次的快照
+            if (keys.isEmpty()) {
+                continue;
+            }
+            try {
+                Map<String, byte[]> values = cache.export(keys);
+                if (!values.isEmpty()) {
+                    new CacheWarmUpSnapshot(System.currentTimeMillis(), values).write(getSnapshotFile(cache));
+                    log.debug("redis cache {} hot key snapshot written, keys:{}", name, values.size());
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("redis cache {} write hot key snapshot error", name, e);
+            }
+        }
+    }
+
+    /*恢复热点key快照,存活时间从记录时刻计算,已过期的快照不恢复*/
+    private void restoreSnapshots(Map<String, CacheWarmUpProgress> all) {
+        for (String name : cacheManager.getCacheNames()) {
+            CacheRedisRepository cache = getRepository(name);
+            if (cache == null) {
+                continue;
+            }
+            try {
+                CacheWarmUpSnapshot snapshot = CacheWarmUpSnapshot.read(getSnapshotFile(cache));
+                if (snapshot == null) {
+                    continue;
+                }
+                long liveTime = 0;
+                if (cache.getTimeout() > 0) {
+                    liveTime = cache.getTimeout() - (System.currentTimeMillis() - snapshot.getCreatedAt()) / 1000L;
+                    if (liveTime <= 0) {
+                        continue;
+                    }
+                }
+                CacheWarmUpProgress p = new CacheWarmUpProgress(name);
+                p.recordRestored(cache.restore(snapshot.getValues(), liveTime));
+                all.put(name, p);
+                log.info("redis cache {} hot key snapshot restored:{}/{}", name, p.getRestored(), snapshot.getValues().size());
+            } catch (IOException | RuntimeException e) {
+                log.error("redis cache {} restore hot key snapshot error", name, e);
+            }
+        }
+    }
+
+    /*加载一批key并写入缓存*/
+    private Runnable createTask(final CacheWarmUpSource source, final CacheRedisRepository cache, final List<Object> batch,
+                                final CacheWarmUpProgress p) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!running) {
+                        p.recordFailed(batch.size());
+                        return;
+                    }
+                    acquire(batch.size());
+                    Map<?, ?> values = source.load(batch);
+                    if (!CollectionUtils.isEmpty(values)) {
+                        cache.putAll(values);
+                    }
+                    p.recordLoaded(batch.size(), values == null ? 0 : values.size());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    p.recordFailed(batch.size());
+                } catch (Exception e) {
+                    log.error("redis cache {} warm-up load error, keys:{}", cache.getName(), batch.size(), e);
+                    p.recordFailed(batch.size());
+                } finally {
+                    if (p.finishBatch()) {
+                        log.info("redis cache warm-up finished, {}", p);
+                    }
+                    finished.countDown();
+                }
+            }
+        };
+    }
+
+    /*按每秒加载数量等待,不限制时直接返回*/
+    private void acquire(int permits) throws InterruptedException {
+        if (config.getRate() <= 0) {
+            return;
+        }
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long at = Math.max(nextPermitAt, now);
+            nextPermitAt = at + permits * TimeUnit.SECONDS.toNanos(1) / config.getRate();
+            wait = at - now;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /*阻塞等待预热完成,按间隔输出进度,超时后预热在后台继续*/
+    private void await() {
+        long deadline = System.currentTimeMillis() + config.getWaitTimeout();
+        try {
+            while (true) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (finished.await(Math.max(0L, Math.min(REPORT_INTERVAL, remaining)), TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                if (remaining <= REPORT_INTERVAL) {
+                    log.warn("redis cache warm-up not finished in {}ms, continue in background, progress:{}",
+                            config.getWaitTimeout(), progress.values());
+                    return;
+                }
+                log.info("redis cache warm-up in progress:{}", progress.values());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*快照文件,按缓存前缀和名称区分*/
+    private File getSnapshotFile(CacheRedisRepository cache) {
+        String fileName = (cache.getKeyPrefix() + cache.getName()).replaceAll("[^A-Za-z0-9._-]", "_");
+        return new File(config.getSnapshotDir(), fileName + CacheWarmUpSnapshot.SUFFIX);
+    }
+
+    private CacheRedisRepository getRepository(String name) {
+        Cache cache = name == null ? null : cacheManager.getCache(name);
+        return cache instanceof CacheRedisRepository ? (CacheRedisRepository) cache : null;
+    }
+
+    private static ThreadFactory threadFactory(final String prefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, prefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
@@ -0,0 +1,130 @@
+package com.shinho.support.cache.redis.warmup;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author 傅为地
+ * 单项缓存预热进度
+ */
+public class CacheWarmUpProgress {
+
+    private final String cacheName;
+
+    //需要加载的key总数
+    private final AtomicLong total = new AtomicLong(0L);
+
+    //已写入的key数量
+    private final LongAdder loaded = new LongAdder();
+
+    //已处理完成的key数量,包含失败和加载结果中不存在的key
+    private final LongAdder processed = new LongAdder();
+
+    //加载失败的key数量
+    private final LongAdder failed = new LongAdder();
+
+    //从快照恢复的key数量
+    private final LongAdder restored = new LongAdder();
+
+    //未完成的批次数量
+    private final AtomicInteger pending = new AtomicInteger(0);
+
+    private final long startTime = System.currentTimeMillis();
+
+    private volatile long endTime;
+
+    CacheWarmUpProgress(String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    void addTotal(long count) {
+        total.addAndGet(count);
+    }
+
+    void addPending() {
+        pending.incrementAndGet();
+    }
+
+    void recordLoaded(int batch, int count) {
+        processed.add(batch);
+        loaded.add(count);
+    }
+
+    void recordFailed(int batch) {
+        processed.add(batch);
+        failed.add(batch);
+    }
+
+    void recordRestored(int count) {
+        restored.add(count);
+    }
+
+    /*一个批次结束,返回是否全部完成*/
+    boolean finishBatch() {
+        if (pending.decrementAndGet() <= 0) {
+            endTime = System.currentTimeMillis();
+            return true;
+        }
+        return false;
+    }
+
+    /*没有需要加载的批次时直接完成*/
+    void finishIfIdle() {
+        if (pending.get() <= 0) {
+            endTime = System.currentTimeMillis();
+        }
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    public long getLoaded() {
+        return loaded.sum();
+    }
+
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getRestored() {
+        return restored.sum();
+    }
+
+    public boolean isDone() {
+        return endTime > 0;
+    }
+
+    /**
+     * 完成百分比
+     * @return 0-100
+     */
+    public int getPercent() {
+        long all = total.get();
+        return all <= 0 ? (isDone() ? 100 : 0) : (int) Math.min(100L, processed.sum() * 100L / all);
+    }
+
+    /**
+     * 已用时间(毫秒)
+     * @return millis
+     */
+    public long getElapsed() {
+        return (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheWarmUpProgress(cacheName=" + cacheName + ", total=" + getTotal() + ", loaded=" + getLoaded()
+                + ", failed=" + getFailed() + ", restored=" + getRestored() + ", percent=" + getPercent()
+                + ", elapsed=" + getElapsed() + ")";
+    }
+}
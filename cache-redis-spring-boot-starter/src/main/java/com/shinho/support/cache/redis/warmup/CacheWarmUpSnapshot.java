@@ -0,0 +1,99 @@
+package com.shinho.support.cache.redis.warmup;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author 傅为地
+ * 热点key快照文件，记录完整缓存key和redis中序列化后的数据
+ * 格式：魔数(4)+版本(1)+记录时刻(8)+数量(4)+[key(UTF)+长度(4)+数据]*
+ */
+final class CacheWarmUpSnapshot {
+
+    private static final int MAGIC = 0xCAC4E501;
+
+    private static final byte VERSION = 1;
+
+    //文件后缀
+    static final String SUFFIX = ".snapshot";
+
+    //记录时刻
+    private final long createdAt;
+
+    private final Map<String, byte[]> values;
+
+    CacheWarmUpSnapshot(long createdAt, Map<String, byte[]> values) {
+        this.createdAt = createdAt;
+        this.values = values;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    Map<String, byte[]> getValues() {
+        return values;
+    }
+
+    /**
+     * 写入快照文件，先写临时文件再替换，避免中途停止时留下不完整的文件
+     * @param file 快照文件
+     * @throws IOException 写入失败
+     */
+    void write(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create snapshot directory " + dir);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(createdAt);
+            out.writeInt(values.size());
+            for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+        } finally {
+            out.close();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 读取快照文件
+     * @param file 快照文件
+     * @return 文件不存在时返回null
+     * @throws IOException 格式不正确或读取失败
+     */
+    static CacheWarmUpSnapshot read(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("invalid cache snapshot file " + file);
+            }
+            long createdAt = in.readLong();
+            int count = in.readInt();
+            Map<String, byte[]> values = new LinkedHashMap<String, byte[]>();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                byte[] value = new byte[in.readInt()];
+                in.readFully(value);
+                values.put(key, value);
+            }
+            return new CacheWarmUpSnapshot(createdAt, Collections.unmodifiableMap(values));
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.shinho.support.cache.redis.warmup;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * @author 傅为地
+ * 缓存启动预热数据来源，注册为spring bean后在启动时按批加载并写入对应缓存
+ * key需要与读取缓存时的key一致，如@Cacheable(key="#id")或@BatchCacheable的元素key
+ */
+public interface CacheWarmUpSource {
+
+    /**
+     * 预热的缓存名称
+     * @return cacheName
+     */
+    String getCacheName();
+
+    /**
+     * 需要预热的key
+     * @return keys
+     * @throws Exception 获取失败时本来源不预热
+     */
+    Collection<?> getKeys() throws Exception;
+
+    /**
+     * 批量加载数据
+     * @param keys 本批key
+     * @return key与缓存对象，未返回的key不写入
+     * @throws Exception 加载失败时本批计为失败
+     */
+    Map<?, ?> load(Collection<?> keys) throws Exception;
+}
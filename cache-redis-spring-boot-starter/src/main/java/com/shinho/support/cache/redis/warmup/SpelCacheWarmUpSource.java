@@ -0,0 +1,111 @@
+package com.shinho.support.cache.redis.warmup;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.context.expression.BeanFactoryResolver;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+
+/**
+ * @author 傅为地
+ * 通过配置的key和SpEL表达式预热，表达式中@beanName引用spring bean，变量#keys为本批key
+ * 加载结果为Map时直接写入，为List或数组时按#keys顺序对应，null元素不写入
+ */
+public class SpelCacheWarmUpSource implements CacheWarmUpSource {
+
+    private static final ExpressionParser PARSER = new SpelExpressionParser();
+
+    private final String cacheName;
+
+    private final List<String> keys;
+
+    private final Expression keysExpression;
+
+    private final Expression loader;
+
+    private final BeanFactory beanFactory;
+
+    /**
+     * @param cacheName 缓存名称
+     * @param keys 配置的key
+     * @param keysExpression 获取key的表达式，可以为空
+     * @param loader 批量加载数据的表达式
+     * @param beanFactory 用于解析表达式中的bean
+     */
+    public SpelCacheWarmUpSource(String cacheName, List<String> keys, String keysExpression, String loader, BeanFactory beanFactory) {
+        this.cacheName = cacheName;
+        this.keys = keys;
+        this.keysExpression = StringUtils.isEmpty(keysExpression) ? null : PARSER.parseExpression(keysExpression);
+        this.loader = PARSER.parseExpression(loader);
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    @Override
+    public Collection<?> getKeys() {
+        Set<Object> all = new LinkedHashSet<Object>();
+        if (!CollectionUtils.isEmpty(keys)) {
+            all.addAll(keys);
+        }
+        if (keysExpression != null) {
+            all.addAll(toList(keysExpression.getValue(createContext(null))));
+        }
+        all.remove(null);
+        return all;
+    }
+
+    @Override
+    public Map<?, ?> load(Collection<?> batch) {
+        Object result = loader.getValue(createContext(batch));
+        if (result == null || result instanceof Map) {
+            return (Map<?, ?>) result;
+        }
+        List<?> values = toList(result);
+        if (values.size() != batch.size()) {
+            throw new IllegalStateException("redis cache " + cacheName + " warm-up loader returned " + values.size()
+                    + " values for " + batch.size() + " keys");
+        }
+        Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+        Iterator<?> it = values.iterator();
+        for (Object key : batch) {
+            Object value = it.next();
+            if (value != null) {
+                map.put(key, value);
+            }
+        }
+        return map;
+    }
+
+    private StandardEvaluationContext createContext(Collection<?> batch) {
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        context.setBeanResolver(new BeanFactoryResolver(beanFactory));
+        if (batch != null) {
+            context.setVariable("keys", new ArrayList<Object>(batch));
+        }
+        return context;
+    }
+
+    /*表达式结果转换为List*/
+    private List<?> toList(Object value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        if (value instanceof Collection) {
+            return new ArrayList<Object>((Collection<?>) value);
+        }
+        if (value.getClass().isArray()) {
+            return Arrays.asList(ObjectUtils.toObjectArray(value));
+        }
+        return Collections.singletonList(value);
+    }
+}